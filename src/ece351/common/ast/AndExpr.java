@@ -26,7 +26,6 @@
 
 package ece351.common.ast;
 
-import java.util.Arrays;
 
 import ece351.common.visitor.ExprVisitor;
 
@@ -45,9 +44,9 @@ public final class AndExpr extends CommutativeBinaryExpr {
 	public Expr accept(final ExprVisitor v) { return v.visitAnd(this); }
     
 	@Override
-	protected Expr simplifyOnce() {
+	protected Expr simplifyOnce(final Simplifier s) {
 		// return a new NaryAndExpr with the same children as this AndExpr
-		return new NaryAndExpr(Arrays.asList(this.left, this.right));
+		return s.apply(Simplifier.Pass.BINARY_TO_NARY, this, e -> ExprFactory.naryAnd(e.left, e.right));
 	}
 
 	@Override
@@ -56,6 +55,6 @@ public final class AndExpr extends CommutativeBinaryExpr {
 	}
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new AndExpr(left, right);
+		return ExprFactory.and(left, right);
 	}
 }
@@ -26,10 +26,9 @@
 
 package ece351.common.ast;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.f.ast.FProgram;
 import ece351.util.Examinable;
+import ece351.util.PersistentVector;
 
 public final class AssignmentStatement extends Statement implements Examinable {
 
@@ -43,7 +42,7 @@ public final class AssignmentStatement extends Statement implements Examinable {
 	
 	public AssignmentStatement(String var, Expr expr)
 	{
-		this.outputVar = new VarExpr(var);
+		this.outputVar = ExprFactory.var(var);
 		this.expr = expr;
 	}
 	
@@ -102,13 +101,22 @@ public final class AssignmentStatement extends Statement implements Examinable {
 	@Override
 	public boolean equivalent(final Examinable obj) {
 		if (!(obj instanceof AssignmentStatement)) return false;
-		final FProgram fp1 = new FProgram(ImmutableList.of(this));
-		final FProgram fp2 = new FProgram(ImmutableList.of((AssignmentStatement)obj));
+		final FProgram fp1 = new FProgram(PersistentVector.of(this));
+		final FProgram fp2 = new FProgram(PersistentVector.of((AssignmentStatement)obj));
 		return fp1.equivalent(fp2);
 	}
 	
 	public AssignmentStatement simplify() {
-		return new AssignmentStatement(outputVar, expr.simplify());
+		return simplify(new Simplifier());
+	}
+
+	/**
+	 * Simplify with a Simplifier shared with other statements,
+	 * so that common subterms are only simplified once.
+	 */
+	public AssignmentStatement simplify(final Simplifier s) {
+		final Expr e = s.simplify(expr);
+		return e == expr ? this : new AssignmentStatement(outputVar, e);
 	}
 
 	public AssignmentStatement varyExpr(final Object e) {
@@ -120,6 +128,6 @@ public final class AssignmentStatement extends Statement implements Examinable {
 	}
 
 	public AssignmentStatement varyOutputVar(final String s) {
-		return new AssignmentStatement(new VarExpr(s), expr);
+		return new AssignmentStatement(ExprFactory.var(s), expr);
 	}
 }
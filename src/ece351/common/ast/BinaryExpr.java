@@ -58,22 +58,41 @@ public abstract class BinaryExpr extends Expr {
 	}
 
 	@Override 
-	public final String toString() {
-		return "(" + left + " " + operator() + " " + right + ")";
+	final void print(final StringBuilder b) {
+		b.append("(");
+		left.printTo(b);
+		b.append(" ").append(operator()).append(" ");
+		right.printTo(b);
+		b.append(")");
 	}
 	
-	public final int hashCode() {
-		int hash = 17;
-		hash = hash * 13 + left.hashCode();
-		hash = hash * 13 + right.hashCode();
-		return hash;
+	@Override
+	final int computeFingerprint() {
+		int f = getClass().getName().hashCode();
+		f = f * 31 + left.fingerprint();
+		f = f * 31 + right.fingerprint();
+		return f;
 	}
-	
+
+	@Override
+	final int compareSameType(final Expr e) {
+		final BinaryExpr that = (BinaryExpr) e;
+		// fingerprints differ for almost all unequal expressions
+		final int f = Integer.compare(fingerprint(), that.fingerprint());
+		if (f != 0) return f;
+		// tie: compare the children
+		final int l = left.compareTo(that.left);
+		if (l != 0) return l;
+		return right.compareTo(that.right);
+	}
+
 	/**
 	 * left equals left and right equals right.
 	 */
 	@Override
 	public final boolean equals(final Object obj) {
+		final Boolean quick = quickEquals(obj);
+		if (quick != null) return quick;
 		return examine(Examiner.Equals, obj);
 	}
 
@@ -44,7 +44,11 @@ public final class ConstantExpr extends Expr {
 	public final static ConstantExpr FalseExpr = new ConstantExpr(false);
 
 	/** Private constructor prevents clients from instantiating. */
-	private ConstantExpr(final Boolean b) { this.b = b; }
+	private ConstantExpr(final Boolean b) {
+		this.b = b;
+		// the two instances are already unique
+		this.interned = true;
+	}
 
 	/** To be used by clients instead of the constructor. 
 	  * Returns a reference to one of the shared objects. */
@@ -62,9 +66,9 @@ public final class ConstantExpr extends Expr {
 		return true;
 	}
 
-	public String toString() {
-		int val = b ? 1 : 0;
-		return "'" + val + "'";
+	@Override
+	void print(final StringBuilder sb) {
+		sb.append(b ? "'1'" : "'0'");
 	}
 
 	public Expr accept(final ExprVisitor v){
@@ -77,13 +81,21 @@ public final class ConstantExpr extends Expr {
 	}
 
 	@Override
-	public int hashCode() {
-		return Boolean.valueOf(b).hashCode();
+	int computeFingerprint() {
+		return b ? 1231 : 1237;
+	}
+
+	@Override
+	int compareSameType(final Expr e) {
+		// false before true
+		return b.compareTo(((ConstantExpr)e).b);
 	}
 
 	@Override
 	public boolean equals(final Object obj) {
 		// basics
+		final Boolean quick = quickEquals(obj);
+		if (quick != null) return quick;
 		if (obj == null) return false;
 		if (!obj.getClass().equals(this.getClass())) return false;
 		final ConstantExpr that = (ConstantExpr) obj;
@@ -46,7 +46,7 @@ public final class EqualExpr extends CommutativeBinaryExpr{
 
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new EqualExpr(left, right);
+		return ExprFactory.equal(left, right);
 	}
 
 }
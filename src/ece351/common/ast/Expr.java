@@ -35,49 +35,61 @@ public abstract class Expr implements Comparable<Expr>, Examinable {
 	
 	private static final AtomicInteger counter = new AtomicInteger();
 	private final int serialNumber;
+
+	/**
+	 * True if this node is the shared representative held by ExprFactory.
+	 * Two distinct shared nodes are never equal.
+	 */
+	volatile boolean interned = false;
+
+	/** Cached structural fingerprint. Zero means not computed yet. */
+	private int fingerprint = 0;
+
+	/** Cached printed form. Null means not printed yet. */
+	private volatile String string = null;
 	
 	public Expr() {
 		serialNumber = counter.getAndIncrement();
 	}
 	
 	/**
+	 * Apply the rewrite rules of this node once.
+	 * The children are already simplified: the Simplifier does that first.
+	 * Must return this if nothing changes.
+	 * Each rule is applied through s, which skips the disabled passes.
 	 * Default implementation is to do nothing.
 	 * @return this
 	 */
-	protected Expr simplifyOnce() {
+	protected Expr simplifyOnce(final Simplifier s) {
 		return this;
 	}
 
 	
 	/**
-	 * Keep applying the simplify method until no more changes occur.
-	 * In other words, iterate to a fixed point.
-	 * @param e
-	 * @return
+	 * Simplify the children, then keep applying simplifyOnce until no 
+	 * more changes occur. In other words, iterate to a fixed point.
+	 * Each distinct subterm is simplified once.
+	 * @see Simplifier
 	 */
 	final public Expr simplify() {
-		Expr e = this;
-		while (true) { // loop forever?
-			final Expr simplified = e.simplifyOnce();
-			if (simplified.equals(e)) {
-				// we're done: nothing changed
-				return simplified;
-			} else {
-				// something changed: keep working
-				e = simplified;
-			}
-		}
+		return new Simplifier().simplify(this);
 	}
 	
 	public final String serialNumber(){ return operator() + serialNumber; };
 	public abstract Expr accept(final ExprVisitor exprVisitor);
 
 	
+	/**
+	 * Expressions are ordered first by type, then by structure.
+	 * The order is deterministic, and compareTo returns zero exactly 
+	 * when the two expressions are equal.
+	 */
 	@Override
 	public final int compareTo(final Expr e) {
+		if (this == e) return 0;
 		if (getClass().equals(e.getClass())) {
 			// same type
-			return toString().compareTo(e.toString());
+			return compareSameType(e);
 		} else {
 			// different types
 			return getClass().getName().compareTo(e.getClass().getName());
@@ -85,12 +97,94 @@ public abstract class Expr implements Comparable<Expr>, Examinable {
 	}
 
 	public abstract String operator();
+
+	/**
+	 * Printed once and then cached, since expressions are immutable.
+	 * Children are printed into the same buffer.
+	 */
+	@Override
+	public final String toString() {
+		String s = string;
+		if (s == null) {
+			final StringBuilder b = new StringBuilder();
+			print(b);
+			s = b.toString();
+			string = s;
+		}
+		return s;
+	}
+
+	/**
+	 * Append the printed form of this expression to b.
+	 * Reuses the cached printed form if there is one.
+	 */
+	final void printTo(final StringBuilder b) {
+		final String s = string;
+		if (s != null) {
+			b.append(s);
+		} else {
+			print(b);
+		}
+	}
+
+	/**
+	 * Append the printed form of this expression to b.
+	 * Subclasses call printTo() on their children.
+	 */
+	abstract void print(final StringBuilder b);
+
+	/**
+	 * The cached structural fingerprint.
+	 * Equal expressions have equal fingerprints.
+	 */
+	@Override
+	public final int hashCode() {
+		return fingerprint();
+	}
+
+	/**
+	 * A deterministic hash of the structure of this expression.
+	 * Computed once, since expressions are immutable. 
+	 * Equal expressions have equal fingerprints.
+	 */
+	final int fingerprint() {
+		int f = fingerprint;
+		if (f == 0) {
+			f = computeFingerprint();
+			if (f == 0) f = 1;
+			fingerprint = f;
+		}
+		return f;
+	}
+
+	/**
+	 * Compute the fingerprint from the fingerprints of the children.
+	 * Must not depend on object identity, so that the order is the same
+	 * from one run to the next.
+	 */
+	abstract int computeFingerprint();
+
+	/**
+	 * Compare to an expression of the same type.
+	 * Must return zero exactly when equals() returns true.
+	 */
+	abstract int compareSameType(final Expr e);
 	
 	/**
 	 * Representation invariant. Assert at the beginning and end of public methods.
 	 * @return true if this object is in a legal state
 	 */
 	public abstract boolean repOk();
+
+	/**
+	 * Answer equals() without looking at any fields, if possible.
+	 * @return TRUE or FALSE if the answer is known, null otherwise
+	 */
+	final Boolean quickEquals(final Object obj) {
+		if (this == obj) return Boolean.TRUE;
+		if (interned && obj instanceof Expr && ((Expr)obj).interned) return Boolean.FALSE;
+		return null;
+	}
 	
 	/**
 	 * Call a SAT solver to compute logical equivalence.
@@ -0,0 +1,229 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.common.ast;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-consing factory for expressions. Every expression built through this
+ * factory is looked up in a unique table first, so structurally equal
+ * expressions are represented by one shared node. Comparing two shared nodes
+ * with equals() then only needs a reference comparison, and common subterms
+ * of large formulas are stored once.
+ * 
+ * The factory is thread-safe. The unique table is split into stripes,
+ * each with its own lock, so that threads building expressions 
+ * concurrently seldom wait for each other.
+ * 
+ * The unique table holds its nodes weakly: a node that is no longer
+ * referenced from any AST can still be garbage collected.
+ * 
+ * Constructors of the Expr classes remain public, so nodes built without
+ * this factory still work: they are just not shared, and equals() falls
+ * back to structural comparison for them.
+ * 
+ * @see http://en.wikipedia.org/wiki/Hash_consing
+ */
+public final class ExprFactory {
+
+	private ExprFactory() {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Number of stripes of the unique table. A power of two. */
+	private static final int STRIPES = 64;
+
+	/** 
+	 * The unique table. Keys are compared with equals(), so a lookup finds the
+	 * shared node that is structurally equal to the probe. The value refers 
+	 * back to the key weakly, so that the entry does not keep it alive.
+	 * Each stripe is also its own lock.
+	 */
+	private static final List<Map<Expr, WeakReference<Expr>>> tables = new ArrayList<Map<Expr, WeakReference<Expr>>>(STRIPES);
+	static {
+		for (int i = 0; i < STRIPES; i++) {
+			tables.add(new WeakHashMap<Expr, WeakReference<Expr>>());
+		}
+	}
+
+	private static Map<Expr, WeakReference<Expr>> stripe(final Expr e) {
+		final int h = e.hashCode();
+		// spread the high bits into the index, as HashMap does
+		return tables.get((h ^ (h >>> 16)) & (STRIPES - 1));
+	}
+
+	public static ConstantExpr constant(final boolean b) {
+		return ConstantExpr.make(b);
+	}
+
+	public static VarExpr var(final String identifier) {
+		return intern(new VarExpr(identifier));
+	}
+
+	public static NotExpr not(final Expr e) {
+		return intern(new NotExpr(intern(e)));
+	}
+
+	public static AndExpr and(final Expr left, final Expr right) {
+		return intern(new AndExpr(intern(left), intern(right)));
+	}
+
+	public static OrExpr or(final Expr left, final Expr right) {
+		return intern(new OrExpr(intern(left), intern(right)));
+	}
+
+	public static XOrExpr xor(final Expr left, final Expr right) {
+		return intern(new XOrExpr(intern(left), intern(right)));
+	}
+
+	public static XNOrExpr xnor(final Expr left, final Expr right) {
+		return intern(new XNOrExpr(intern(left), intern(right)));
+	}
+
+	public static NAndExpr nand(final Expr left, final Expr right) {
+		return intern(new NAndExpr(intern(left), intern(right)));
+	}
+
+	public static NOrExpr nor(final Expr left, final Expr right) {
+		return intern(new NOrExpr(intern(left), intern(right)));
+	}
+
+	public static EqualExpr equal(final Expr left, final Expr right) {
+		return intern(new EqualExpr(intern(left), intern(right)));
+	}
+
+	public static NaryAndExpr naryAnd(final List<Expr> children) {
+		return intern(new NaryAndExpr(internAll(children)));
+	}
+
+	public static NaryAndExpr naryAnd(final Expr... children) {
+		return intern(new NaryAndExpr(internAll(children)));
+	}
+
+	public static NaryOrExpr naryOr(final List<Expr> children) {
+		return intern(new NaryOrExpr(internAll(children)));
+	}
+
+	public static NaryOrExpr naryOr(final Expr... children) {
+		return intern(new NaryOrExpr(internAll(children)));
+	}
+
+	/**
+	 * Return the shared node that is structurally equal to e. If there is 
+	 * none yet then e (with its children shared) becomes the shared node.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends Expr> E intern(final E e) {
+		if (e.interned) {
+			// already shared: nothing to look up
+			return e;
+		}
+		return (E) lookup(shareChildren(e));
+	}
+
+	/**
+	 * Rebuild e on top of shared children, if it is not already built that way.
+	 * Uses the newXXX methods of the node, which come back to this factory.
+	 */
+	private static Expr shareChildren(final Expr e) {
+		if (e instanceof UnaryExpr) {
+			final UnaryExpr u = (UnaryExpr) e;
+			final Expr child = intern(u.expr);
+			return child == u.expr ? u : u.newUnaryExpr(child);
+		} else if (e instanceof BinaryExpr) {
+			final BinaryExpr b = (BinaryExpr) e;
+			final Expr left = intern(b.left);
+			final Expr right = intern(b.right);
+			return (left == b.left && right == b.right) ? b : b.newBinaryExpr(left, right);
+		} else if (e instanceof NaryExpr) {
+			final NaryExpr n = (NaryExpr) e;
+			final List<Expr> children = internAll(n.children);
+			for (int i = 0; i < children.size(); i++) {
+				if (children.get(i) != n.children.get(i)) {
+					return n.newNaryExpr(children);
+				}
+			}
+			return n;
+		} else {
+			// leaves: VarExpr and ConstantExpr
+			return e;
+		}
+	}
+
+	private static Expr lookup(final Expr e) {
+		if (e.interned) {
+			// shareChildren went through the factory to rebuild e
+			return e;
+		}
+		final Map<Expr, WeakReference<Expr>> table = stripe(e);
+		synchronized (table) {
+			final WeakReference<Expr> ref = table.get(e);
+			if (ref != null) {
+				final Expr shared = ref.get();
+				if (shared != null) {
+					return shared;
+				}
+			}
+			e.interned = true;
+			table.put(e, new WeakReference<Expr>(e));
+			return e;
+		}
+	}
+
+	private static List<Expr> internAll(final List<Expr> exprs) {
+		final List<Expr> result = new ArrayList<Expr>(exprs.size());
+		for (final Expr e : exprs) {
+			result.add(intern(e));
+		}
+		return result;
+	}
+
+	private static List<Expr> internAll(final Expr... exprs) {
+		final List<Expr> result = new ArrayList<Expr>(exprs.length);
+		for (final Expr e : exprs) {
+			result.add(intern(e));
+		}
+		return result;
+	}
+
+	/** Number of shared nodes currently alive. For tests and diagnostics. */
+	public static int size() {
+		int size = 0;
+		for (final Map<Expr, WeakReference<Expr>> table : tables) {
+			synchronized (table) {
+				size += table.size();
+			}
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,175 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.common.ast;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The literals among the children of a term, as bit masks over a 
+ * variable index. A literal is a variable or a negated variable.
+ * Bit i of pos is set if variable i appears as a child, and bit i of
+ * neg is set if its negation appears as a child.
+ * 
+ * Comparing the literals of two terms is then a few word operations
+ * instead of nested loops over their children.
+ */
+final class LiteralMask {
+
+	/**
+	 * Assigns consecutive bit positions to variable names.
+	 * One index is shared by all the masks that are compared to each other.
+	 */
+	static final class Index {
+		private final Map<String,Integer> positions = new HashMap<String,Integer>();
+
+		int positionOf(final String identifier) {
+			Integer p = positions.get(identifier);
+			if (p == null) {
+				p = positions.size();
+				positions.put(identifier, p);
+			}
+			return p;
+		}
+	}
+
+	private static final long[] EMPTY = new long[0];
+
+	final long[] pos;
+	final long[] neg;
+	/** Number of distinct literals. */
+	final int count;
+	/** 
+	 * All literal bits folded into one word. If this is a subset of that
+	 * then the signature of this is a subset of the signature of that.
+	 */
+	final long signature;
+	/** True if every child is a literal. */
+	final boolean flat;
+
+	private LiteralMask(final long[] pos, final long[] neg, final boolean flat) {
+		this.pos = pos;
+		this.neg = neg;
+		this.flat = flat;
+		int c = 0;
+		long s = 0;
+		for (int i = 0; i < pos.length; i++) {
+			c += Long.bitCount(pos[i]);
+			s |= Long.rotateLeft(pos[i], i);
+		}
+		for (int i = 0; i < neg.length; i++) {
+			c += Long.bitCount(neg[i]);
+			s |= Long.rotateLeft(neg[i], i + 32);
+		}
+		this.count = c;
+		this.signature = s;
+	}
+
+	static boolean isLiteral(final Expr e) {
+		return e instanceof VarExpr || (e instanceof NotExpr && ((NotExpr)e).expr instanceof VarExpr);
+	}
+
+	/**
+	 * The mask of the literals in exprs. Other expressions are ignored,
+	 * in which case the mask is not flat.
+	 */
+	static LiteralMask of(final List<Expr> exprs, final Index index) {
+		long[] pos = EMPTY;
+		long[] neg = EMPTY;
+		boolean flat = true;
+		for (final Expr e : exprs) {
+			if (e instanceof VarExpr) {
+				pos = set(pos, index.positionOf(((VarExpr)e).identifier));
+			} else if (isLiteral(e)) {
+				neg = set(neg, index.positionOf(((VarExpr)((NotExpr)e).expr).identifier));
+			} else {
+				flat = false;
+			}
+		}
+		return new LiteralMask(pos, neg, flat);
+	}
+
+	private static long[] set(long[] words, final int bit) {
+		final int w = bit >>> 6;
+		if (w >= words.length) {
+			words = Arrays.copyOf(words, w + 1);
+		}
+		words[w] |= 1L << bit;
+		return words;
+	}
+
+	private static long word(final long[] words, final int i) {
+		return i < words.length ? words[i] : 0L;
+	}
+
+	/**
+	 * True if some variable appears both as itself and negated.
+	 */
+	boolean hasComplement() {
+		final int n = Math.min(pos.length, neg.length);
+		for (int i = 0; i < n; i++) {
+			if ((pos[i] & neg[i]) != 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * True if every literal of this is also a literal of that.
+	 */
+	boolean subsetOf(final LiteralMask that) {
+		// cheap rejections first
+		if (count > that.count) return false;
+		if ((signature & ~that.signature) != 0) return false;
+		for (int i = 0; i < pos.length; i++) {
+			if ((pos[i] & ~word(that.pos, i)) != 0) return false;
+		}
+		for (int i = 0; i < neg.length; i++) {
+			if ((neg[i] & ~word(that.neg, i)) != 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * True if this and that have at least one literal in common.
+	 */
+	boolean intersects(final LiteralMask that) {
+		if ((signature & that.signature) == 0) return false;
+		final int np = Math.min(pos.length, that.pos.length);
+		for (int i = 0; i < np; i++) {
+			if ((pos[i] & that.pos[i]) != 0) return true;
+		}
+		final int nn = Math.min(neg.length, that.neg.length);
+		for (int i = 0; i < nn; i++) {
+			if ((neg[i] & that.neg[i]) != 0) return true;
+		}
+		return false;
+	}
+
+}
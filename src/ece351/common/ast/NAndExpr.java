@@ -43,6 +43,6 @@ public final class NAndExpr extends CommutativeBinaryExpr {
 	}
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new NAndExpr(left, right);
+		return ExprFactory.nand(left, right);
 	}
 }
@@ -44,6 +44,6 @@ public final class NOrExpr extends CommutativeBinaryExpr {
 	}
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new NOrExpr(left, right);
+		return ExprFactory.nor(left, right);
 	}
 }
@@ -41,9 +41,17 @@ public final class NaryAndExpr extends NaryExpr {
 		super(children);
 	}
 	
+	/**
+	 * A builder for a new NaryAndExpr.
+	 * The children are sorted once, when build() is called.
+	 */
+	public static NaryExpr.Builder builder() {
+		return NaryExpr.builder(ExprFactory::naryAnd);
+	}
+
 	@Override
 	public NaryExpr newNaryExpr(final List<Expr> children) {
-		return new NaryAndExpr(children);
+		return ExprFactory.naryAnd(children);
 	}
 
 	@Override
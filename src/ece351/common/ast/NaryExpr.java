@@ -29,35 +29,36 @@ package ece351.common.ast;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
-import org.parboiled.common.ImmutableList;
-
+import ece351.util.CommandLine.FSimplifierOptions;
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 
 /**
  * An expression with multiple children. Must be commutative.
  */
 public abstract class NaryExpr extends Expr {
 
-	public final ImmutableList<Expr> children;
+	public final PersistentVector<Expr> children;
 
 	public NaryExpr(final Expr... exprs) {
 		Arrays.sort(exprs);
-		ImmutableList<Expr> c = ImmutableList.of();
-		for (final Expr e : exprs) {
-			c = c.append(e);
-		}
-    	this.children = c;
+    	this.children = PersistentVector.of(exprs);
 	}
 	
 	public NaryExpr(final List<Expr> children) {
 		final ArrayList<Expr> a = new ArrayList<Expr>(children);
 		Collections.sort(a);
-		this.children = ImmutableList.copyOf(a);
+		this.children = PersistentVector.copyOf(a);
 	}
 
 	/**
@@ -66,6 +67,70 @@ public abstract class NaryExpr extends Expr {
 	 */
 	public abstract NaryExpr newNaryExpr(final List<Expr> children);
 
+	/**
+	 * A builder for a new NaryExpr of the same type as this one.
+	 */
+	public final Builder newBuilder() {
+		return new Builder(this::newNaryExpr);
+	}
+
+	/**
+	 * A builder for new NaryExprs made by the given factory,
+	 * such as ExprFactory::naryAnd.
+	 */
+	public static Builder builder(final Function<List<Expr>, ? extends NaryExpr> factory) {
+		return new Builder(factory);
+	}
+
+	/**
+	 * Accumulates children in any order, and constructs the NaryExpr
+	 * once at the end. The children are sorted only once, in build(),
+	 * rather than each time a child is appended. 
+	 */
+	public static final class Builder {
+		private final Function<List<Expr>, ? extends NaryExpr> factory;
+		private final PersistentVector.Builder<Expr> children = new PersistentVector.Builder<Expr>();
+
+		private Builder(final Function<List<Expr>, ? extends NaryExpr> factory) {
+			this.factory = factory;
+		}
+
+		public Builder add(final Expr e) {
+			assert e != null : "null children not allowed in NaryExpr";
+			children.add(e);
+			return this;
+		}
+
+		public Builder addAll(final List<Expr> list) {
+			for (final Expr e : list) {
+				add(e);
+			}
+			return this;
+		}
+
+		public int size() {
+			return children.size();
+		}
+
+		/**
+		 * The new NaryExpr, whose rep must be ok: it needs at least two children.
+		 */
+		public NaryExpr build() {
+			final NaryExpr result = buildUnchecked();
+			assert result.repOk();
+			return result;
+		}
+
+		/**
+		 * The new NaryExpr, which might have fewer than two children.
+		 * Only for the intermediate steps of simplification, which
+		 * singletonify() cleans up.
+		 */
+		private NaryExpr buildUnchecked() {
+			return factory.apply(children.build());
+		}
+	}
+
 	/**
 	 * Construct a new NaryExpr (of the appropriate subtype) with 
 	 * one extra child.
@@ -138,12 +203,11 @@ public abstract class NaryExpr extends Expr {
 
 
 	@Override 
-    public final String toString() {
-    	final StringBuilder b = new StringBuilder();
+    final void print(final StringBuilder b) {
     	b.append("(");
     	int count = 0;
     	for (final Expr c : children) {
-    		b.append(c);
+    		c.printTo(b);
     		if (++count  < children.size()) {
     			b.append(" ");
     			b.append(operator());
@@ -152,17 +216,38 @@ public abstract class NaryExpr extends Expr {
     		
     	}
     	b.append(")");
-    	return b.toString();
     }
 
 
 	@Override
-	public final int hashCode() {
-		return 17 + children.hashCode();
+	final int computeFingerprint() {
+		int f = getClass().getName().hashCode();
+		for (final Expr c : children) {
+			f = f * 31 + c.fingerprint();
+		}
+		return f;
+	}
+
+	@Override
+	final int compareSameType(final Expr e) {
+		final NaryExpr that = (NaryExpr) e;
+		// fingerprints differ for almost all unequal expressions
+		final int f = Integer.compare(fingerprint(), that.fingerprint());
+		if (f != 0) return f;
+		// tie: compare the children
+		final int s = Integer.compare(children.size(), that.children.size());
+		if (s != 0) return s;
+		for (int i = 0; i < children.size(); i++) {
+			final int c = children.get(i).compareTo(that.children.get(i));
+			if (c != 0) return c;
+		}
+		return 0;
 	}
 
 	@Override
 	public final boolean equals(final Object obj) {
+		final Boolean quick = quickEquals(obj);
+		if (quick != null) return quick;
 		if (!(obj instanceof Examinable)) return false;
 		return examine(Examiner.Equals, (Examinable)obj);
 	}
@@ -199,36 +284,25 @@ public abstract class NaryExpr extends Expr {
 
 	
 	@Override
-	protected final Expr simplifyOnce() {
+	protected final Expr simplifyOnce(final Simplifier s) {
 		assert repOk();
-		final Expr result = 
-				simplifyChildren().
-				mergeGrandchildren().
-				foldIdentityElements().
-				foldAbsorbingElements().
-				foldComplements().
-				removeDuplicates().
-				simpleAbsorption().
-				subsetAbsorption().
-				singletonify();
+		// the children are already simplified
+		// each pass is skipped if its option is disabled
+		final boolean truthTables = s.isEnabled(FSimplifierOptions.TRUTHTABLE);
+		NaryExpr e = this;
+		e = s.applySameType(Simplifier.Pass.MERGE_GRANDCHILDREN, e, NaryExpr::mergeGrandchildren);
+		e = s.applySameType(Simplifier.Pass.FOLD_IDENTITY, e, NaryExpr::foldIdentityElements);
+		e = s.applySameType(Simplifier.Pass.FOLD_ABSORBING, e, NaryExpr::foldAbsorbingElements);
+		e = s.applySameType(Simplifier.Pass.FOLD_COMPLEMENTS, e, x -> x.foldComplements(truthTables));
+		e = s.applySameType(Simplifier.Pass.REMOVE_DUPLICATES, e, x -> x.removeDuplicates(truthTables));
+		e = s.applySameType(Simplifier.Pass.SIMPLE_ABSORPTION, e, NaryExpr::simpleAbsorption);
+		e = s.applySameType(Simplifier.Pass.SUBSET_ABSORPTION, e, NaryExpr::subsetAbsorption);
+		// always restore the invariant: at least two children
+		final Expr result = e.singletonify();
 		assert result.repOk();
 		return result;
 	}
 	
-	/**
-	 * Call simplify() on each of the children.
-	 */
-	private NaryExpr simplifyChildren() {
-		// note: we do not assert repOk() here because the rep might not be ok
-		// the result might contain duplicate children, and the children
-		// might be out of order
-		NaryExpr result = newNaryExpr(Arrays.asList());
-		for (Expr child: this.children) {
-			result = result.append(child.simplify());
-		}
-		return result;
-	}
-
 	
 	private NaryExpr mergeGrandchildren() {
 		// extract children to merge using filter (because they are the same type as us)
@@ -237,21 +311,28 @@ public abstract class NaryExpr extends Expr {
 			// merge in the grandchildren
 			// assert result.repOk():  this operation should always leave the AST in a legal state
 		
-		NaryExpr filteredSameType = filter(this.getClass(), true);
-		if (filteredSameType.children.isEmpty()) {
+		boolean sameTypeChildren = false;
+		for (Expr child: this.children) {
+			if (child.getClass().equals(this.getClass())) {
+				sameTypeChildren = true;
+				break;
+			}
+		}
+		if (!sameTypeChildren) {
 			return this;
 		}
 		
-		NaryExpr result = filter(this.getClass(), false);
-		
-		for (Expr sameTypeChild: filteredSameType.children) {
-			// Assume we can safely cast to NaryExpr since we have filtered children successfully
-			NaryExpr child = (NaryExpr) sameTypeChild;
-			result = result.appendAll(child.children);
-		}		
+		final Builder b = newBuilder();
+		for (Expr child: this.children) {
+			if (child.getClass().equals(this.getClass())) {
+				// safe to cast since it is the same type as us
+				b.addAll(((NaryExpr) child).children);
+			} else {
+				b.add(child);
+			}
+		}
 		
-		assert result.repOk();
-		return result;
+		return b.build();
 	}
 
 
@@ -266,18 +347,22 @@ public abstract class NaryExpr extends Expr {
     		return this;
     	}
     	
-    	NaryExpr result = newNaryExpr(Arrays.asList());
+    	final Builder result = newBuilder();
     	for (Expr child: this.children) {
     		if (!this.getIdentityElement().equals(child)) {
-    			result = result.append(child);
+    			result.add(child);
     		}
 		}
     	
-    	if (result.children.isEmpty()) {
-    		result = result.append(this.getIdentityElement());
+    	if (result.size() == this.children.size()) {
+    		// no change
+    		return this;
+    	}
+    	if (result.size() == 0) {
+    		result.add(this.getIdentityElement());
     	}
     	
-    	return result;
+    	return result.buildUnchecked();
     	// do not assert repOk(): this fold might leave the AST in an illegal state (with only one child)
     }
 
@@ -289,8 +374,7 @@ public abstract class NaryExpr extends Expr {
     	
     	for (Expr child: this.children) {
     		if (this.getAbsorbingElement().equals(child)) {
-    			NaryExpr result = newNaryExpr(Arrays.asList());
-    			return result.append(this.getAbsorbingElement());
+    			return newBuilder().add(this.getAbsorbingElement()).buildUnchecked();
     		}
 		}
     	    	
@@ -298,7 +382,7 @@ public abstract class NaryExpr extends Expr {
     	// do not assert repOk(): this fold might leave the AST in an illegal state (with only one child)
 	}
 
-	private NaryExpr foldComplements() {
+	private NaryExpr foldComplements(final boolean truthTables) {
 		// collapse complements
 		// !x . x . ... = 0 and !x + x + ... = 1
 		// x op !x = absorbing element
@@ -308,21 +392,41 @@ public abstract class NaryExpr extends Expr {
 				// return absorbing element
 		// no complements to fold
 
-		NaryExpr result = newNaryExpr(this.children);
-		for (Expr child: result.children) {
+		// literal complements, e.g. x . !x, in a few word operations
+		if (LiteralMask.of(this.children, new LiteralMask.Index()).hasComplement()) {
+			return newBuilder().add(getAbsorbingElement()).buildUnchecked();
+		}
+		
+		// the children are already simplified, so structural equality finds 
+		// the other complements that matter without calling the SAT solver
+		final Set<Expr> childSet = new HashSet<Expr>(this.children);
+		for (Expr child: this.children) {
 			if (child.getClass() == NotExpr.class) {
-				if (this.contains(((NotExpr)child).expr, Examiner.Equivalent)) {
-					result = result.removeAll(Arrays.asList(child, ((NotExpr)child).expr), Examiner.Equivalent); // Hmmm... isn't it possible that this removes more than just the pair? Do we want this to be possible?
-					result = result.append(getAbsorbingElement());
+				if (childSet.contains(((NotExpr)child).expr)) {
+					return newBuilder().add(getAbsorbingElement()).buildUnchecked();
 				}
 			}
 		}
 		
-		return result;
+		// optionally look for complements that are not syntactic
+		if (truthTables) {
+			final TruthTable[] tables = childTruthTables();
+			if (tables != null) {
+				final Set<TruthTable> seen = new HashSet<TruthTable>();
+				for (final TruthTable t : tables) {
+					if (seen.contains(t.not())) {
+						return newBuilder().add(getAbsorbingElement()).buildUnchecked();
+					}
+					seen.add(t);
+				}
+			}
+		}
+		
+		return this;
     	// do not assert repOk(): this fold might leave the AST in an illegal state (with only one child)
 	}
 
-	private NaryExpr removeDuplicates() {
+	private NaryExpr removeDuplicates(final boolean truthTables) {
 		// remove duplicate children: x.x=x and x+x=x
 		// since children are sorted this is fairly easy
 			// no changes
@@ -332,40 +436,76 @@ public abstract class NaryExpr extends Expr {
 			return this;
 		}
 		
-		NaryExpr result = newNaryExpr(this.children);
-		for (int i = 1; i < this.children.size(); i++) {
-			if (this.children.get(i).equivalent(this.children.get(i-1))) {
-				// Remove both x's, and append one x
-				result = result.removeAll(Arrays.asList(this.children.get(i), this.children.get(i-1)), Examiner.Equals);
-				result = result.append(this.children.get(i));
+		final Builder result = newBuilder();
+		final TruthTable[] tables = truthTables ? childTruthTables() : null;
+		if (tables != null) {
+			// keep the first child with each truth table
+			final Set<TruthTable> seen = new HashSet<TruthTable>();
+			for (int i = 0; i < tables.length; i++) {
+				if (seen.add(tables[i])) {
+					result.add(this.children.get(i));
+				}
+			}
+		} else {
+			// compareTo is consistent with equals, so duplicates are adjacent
+			Expr previous = null;
+			for (Expr child: this.children) {
+				if (!child.equals(previous)) {
+					result.add(child);
+				}
+				previous = child;
 			}
 		}
 		
-		return result;
+		if (result.size() == this.children.size()) {
+			// no duplicates
+			return this;
+		}
+		return result.buildUnchecked();
     	// do not assert repOk(): this fold might leave the AST in an illegal state (with only one child)
 	}
 
+	/** Largest number of variables for which the simplifier compares truth tables. */
+	private static final int SIMPLIFIER_TABLE_VARS = 10;
+
+	/**
+	 * Truth tables of the children over a common variable index,
+	 * or null if the children have too many variables between them.
+	 * The children are evaluated together, so subterms they share
+	 * are evaluated once.
+	 */
+	private TruthTable[] childTruthTables() {
+		final Map<String,Integer> vars = new HashMap<String,Integer>();
+		for (final Expr child : this.children) {
+			if (!TruthTable.index(child, vars, SIMPLIFIER_TABLE_VARS)) return null;
+		}
+		return TruthTable.of(this.children, vars);
+	}
+
 	private NaryExpr simpleAbsorption() {
 		// (x.y) + x ... = x ...
 		// check if there are any conjunctions that can be removed
+		// the literals are compared as bit masks over a common variable index
 		
-		NaryExpr filteredOtherType = filter(getThatClass(), true);
-		if (filteredOtherType.children.isEmpty()) {
+		final LiteralMask.Index index = new LiteralMask.Index();
+		final LiteralMask literals = LiteralMask.of(this.children, index);
+		if (literals.count == 0) {
 			return this;
 		}
 		
-		NaryExpr result = newNaryExpr(this.children);
+		final Builder result = newBuilder();
+		boolean change = false;
 		for (Expr child: this.children) {
-			if (child.getClass() == VarExpr.class) {
-				for (Expr otherTypeChildExpr: filteredOtherType.children) {
-					if (((NaryExpr)otherTypeChildExpr).contains(child, Examiner.Equals)) {
-						result = result.removeAll(Arrays.asList(otherTypeChildExpr), Examiner.Equals);
-					}
-				}
+			if (child.getClass() == getThatClass() 
+					&& LiteralMask.of(((NaryExpr)child).children, index).intersects(literals)) {
+				// absorbed by one of our literals
+				change = true;
+			} else {
+				result.add(child);
 			}
 		}
 		
-		return result;
+		return change ? result.buildUnchecked() : this;
     	// do not assert repOk(): this operation might leave the AST in an illegal state (with only one child)
 	}
 
@@ -384,47 +524,70 @@ public abstract class NaryExpr extends Expr {
 		a + b + ((a + b) . c) = a + b
 		*/
 		
-		NaryExpr filteredOtherType = this.filter(getThatClass(), true);
-		if (filteredOtherType.children.isEmpty()) {
+		final List<NaryExpr> others = new ArrayList<NaryExpr>();
+		for (Expr child: this.children) {
+			if (child.getClass() == getThatClass()) {
+				others.add((NaryExpr) child);
+			}
+		}
+		if (others.isEmpty()) {
 			return this;
 		}
 		
-		NaryExpr result = newNaryExpr(this.children);
+		// literals of each of the other type children, over a common index
+		final LiteralMask.Index index = new LiteralMask.Index();
+		final LiteralMask[] masks = new LiteralMask[others.size()];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = LiteralMask.of(others.get(i).children, index);
+		}
+		
+		final Set<Expr> absorbed = new HashSet<Expr>();
 		
 		// Check case 1:
-		for (Expr otherTypeChildExpr1: filteredOtherType.children) {
-			for (Expr otherTypeChildExpr2: filteredOtherType.children) {
-				if (((NaryExpr)otherTypeChildExpr1).containsNaryExprSubset((NaryExpr)otherTypeChildExpr2, Examiner.Equals)) {
-					result = result.removeAll(Arrays.asList(otherTypeChildExpr1), Examiner.Equals);
+		for (int i = 0; i < masks.length; i++) {
+			final NaryExpr big = others.get(i);
+			for (int j = 0; j < masks.length; j++) {
+				final NaryExpr small = others.get(j);
+				// the literals of small must be a subset of the literals of big
+				if (i == j || !masks[j].subsetOf(masks[i])) continue;
+				if (masks[j].flat ? !small.equals(big) : big.containsNaryExprSubset(small, Examiner.Equals)) {
+					absorbed.add(big);
+					break;
 				}
 			}
 		}
 		
-		// Refresh filteredOtherType
-		filteredOtherType = result.filter(getThatClass(), true);
-		
 		// Check case 2:
-		for (Expr otherTypeChildExpr: filteredOtherType.children) {
-			for (Expr GrandChildExpr: ((NaryExpr)otherTypeChildExpr).children) {
-				if (GrandChildExpr.getClass() == NaryAndExpr.class || GrandChildExpr.getClass() == NaryOrExpr.class) {
+		final Set<Expr> remaining = new HashSet<Expr>(this.children);
+		remaining.removeAll(absorbed);
+		final LiteralMask literals = LiteralMask.of(this.children, index);
+		for (final NaryExpr other: others) {
+			if (absorbed.contains(other)) continue;
+			for (Expr grandChild: other.children) {
+				if (grandChild.getClass() == NaryAndExpr.class || grandChild.getClass() == NaryOrExpr.class) {
 					// We can assume that this grand child expression is the same AND/OR type as this, or else it would have been merged.
 					
 					// Check if each great grand child of this grand child expression exists as an individual child of this.
-					boolean canBeAbsorbed = true;
-					for (Expr greatGrandChild: ((NaryExpr)GrandChildExpr).children) {
-						if (!result.contains(greatGrandChild, Examiner.Equals)) {
-							canBeAbsorbed = false;
-						}
-					}
-					if (canBeAbsorbed) {
-						result = result.removeAll(Arrays.asList(otherTypeChildExpr), Examiner.Equals);
+					final List<Expr> greatGrandChildren = ((NaryExpr)grandChild).children;
+					if (LiteralMask.of(greatGrandChildren, index).subsetOf(literals)
+							&& remaining.containsAll(greatGrandChildren)) {
+						absorbed.add(other);
 						break;
 					}
 				}
 			}
 		}
 		
-		return result;
+		if (absorbed.isEmpty()) {
+			return this;
+		}
+		final Builder result = newBuilder();
+		for (Expr child: this.children) {
+			if (!absorbed.contains(child)) {
+				result.add(child);
+			}
+		}
+		return result.buildUnchecked();
     	// do not assert repOk(): this operation might leave the AST in an illegal state (with only one child)
 	}
 	
@@ -469,35 +632,35 @@ public abstract class NaryExpr extends Expr {
 	 * @return
 	 */
 	public final NaryExpr filter(final Class<? extends Expr> filter, final boolean shouldMatchFilter) {
-		ImmutableList<Expr> l = ImmutableList.of();
+		final Builder l = newBuilder();
 		for (final Expr child : children) {
 			if (child.getClass().equals(filter)) {
 				if (shouldMatchFilter) {
-					l = l.append(child);
+					l.add(child);
 				}
 			} else {
 				if (!shouldMatchFilter) {
-					l = l.append(child);
+					l.add(child);
 				}
 			}
 		}
-		return newNaryExpr(l);
+		return l.buildUnchecked();
 	}
 
 	public final NaryExpr filter(final Expr filter, final Examiner examiner, final boolean shouldMatchFilter) {
-		ImmutableList<Expr> l = ImmutableList.of();
+		final Builder l = newBuilder();
 		for (final Expr child : children) {
 			if (examiner.examine(child, filter)) {
 				if (shouldMatchFilter) {
-					l = l.append(child);
+					l.add(child);
 				}
 			} else {
 				if (!shouldMatchFilter) {
-					l = l.append(child);
+					l.add(child);
 				}
 			}
 		}
-		return newNaryExpr(l);
+		return l.buildUnchecked();
 	}
 
 	public final NaryExpr removeAll(final List<Expr> toRemove, final Examiner examiner) {
@@ -40,9 +40,17 @@ public final class NaryOrExpr extends NaryExpr {
 		super(children);
 	}
 	
+	/**
+	 * A builder for a new NaryOrExpr.
+	 * The children are sorted once, when build() is called.
+	 */
+	public static NaryExpr.Builder builder() {
+		return NaryExpr.builder(ExprFactory::naryOr);
+	}
+
 	@Override
 	public NaryExpr newNaryExpr(final List<Expr> children) {
-		return new NaryOrExpr(children);
+		return ExprFactory.naryOr(children);
 	}
 
 	@Override
@@ -40,27 +40,24 @@ public final class NotExpr extends UnaryExpr{
 	public NotExpr() { this(null); }
 	
 	@Override
-    protected final Expr simplifyOnce() {		
-    	// simplify our child first
+    protected final Expr simplifyOnce(final Simplifier s) {		
+    	// our child is already simplified
     			// !true = false
     			// !false = true
     		// !!x = x
     		// nothing changed
-    		// something changed
 		
-		NotExpr result = new NotExpr(this.expr.simplify());
-    	
-		if (result.expr.getClass() == ConstantExpr.class) {
-			ConstantExpr constantArgument = (ConstantExpr) result.expr;
-			return ConstantExpr.make(!constantArgument.b);
+		if (this.expr.getClass() == ConstantExpr.class) {
+			return s.apply(Simplifier.Pass.NEGATE_CONSTANT, this, 
+					e -> ConstantExpr.make(!((ConstantExpr) e.expr).b));
 		}
 		
-		if (result.expr.getClass() == NotExpr.class) {
-			NotExpr notExpr = (NotExpr) result.expr;
-			return notExpr.expr;
+		if (this.expr.getClass() == NotExpr.class) {
+			return s.apply(Simplifier.Pass.DOUBLE_NEGATION, this, 
+					e -> ((NotExpr) e.expr).expr);
 		}
 		
-		return result;
+		return this;
     }
 	
     public Expr accept(final ExprVisitor v){
@@ -73,7 +70,7 @@ public final class NotExpr extends UnaryExpr{
 	}
 	@Override
 	public UnaryExpr newUnaryExpr(final Expr expr) {
-		return new NotExpr(expr);
+		return ExprFactory.not(expr);
 	}
 
 }
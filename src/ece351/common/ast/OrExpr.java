@@ -26,7 +26,6 @@
 
 package ece351.common.ast;
 
-import java.util.Arrays;
 
 import ece351.common.visitor.ExprVisitor;
 
@@ -46,9 +45,9 @@ public final class OrExpr extends CommutativeBinaryExpr{
     }
 
 	@Override
-	public Expr simplifyOnce() {
+	public Expr simplifyOnce(final Simplifier s) {
 		// return a new NaryOrExpr with the same children as this OrExpr
-		return new NaryOrExpr(Arrays.asList(this.left, this.right));
+		return s.apply(Simplifier.Pass.BINARY_TO_NARY, this, e -> ExprFactory.naryOr(e.left, e.right));
 	}
 	@Override
 	public String operator() {
@@ -56,6 +55,6 @@ public final class OrExpr extends CommutativeBinaryExpr{
 	}
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new OrExpr(left, right);
+		return ExprFactory.or(left, right);
 	}
 }
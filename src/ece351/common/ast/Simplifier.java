@@ -0,0 +1,271 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.common.ast;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import ece351.util.CommandLine.FSimplifierOptions;
+
+/**
+ * Simplifies expressions bottom-up, simplifying each distinct subterm
+ * exactly once. 
+ * 
+ * The children of a node are simplified first, then the rewrite rules
+ * of the node itself (its simplifyOnce() method) are applied until 
+ * nothing changes. The result of each node is remembered, so a subterm
+ * that is shared within an expression, or across the formulas of a 
+ * program, is not simplified again. Change is detected by reference,
+ * which is reliable because the rewrite rules build their results 
+ * through ExprFactory and return this when they do nothing.
+ * 
+ * The rewrite rules are grouped into passes, and each pass is enabled
+ * by one of the FSimplifierOptions. The Simplifier records how often
+ * each pass ran, how often it changed something, how many nodes it 
+ * removed, and how long it took: see report().
+ * 
+ * Not thread-safe: use one Simplifier per thread, and combine their
+ * statistics with addStatistics().
+ */
+public final class Simplifier {
+
+	/**
+	 * The rewrite passes, in the order they are applied to a node.
+	 */
+	public enum Pass {
+		/** x and y = (x and y) as an NaryAndExpr; same for or */
+		BINARY_TO_NARY(FSimplifierOptions.STANDARDIZE),
+		/** !!x = x */
+		DOUBLE_NEGATION(FSimplifierOptions.STANDARDIZE),
+		/** (x . (y . z)) = (x . y . z) */
+		MERGE_GRANDCHILDREN(FSimplifierOptions.STANDARDIZE),
+		/** !1 = 0 and !0 = 1 */
+		NEGATE_CONSTANT(FSimplifierOptions.CONSTANT),
+		/** x . 1 = x and x + 0 = x */
+		FOLD_IDENTITY(FSimplifierOptions.CONSTANT),
+		/** x . 0 = 0 and x + 1 = 1 */
+		FOLD_ABSORBING(FSimplifierOptions.CONSTANT),
+		/** x . !x = 0 and x + !x = 1 */
+		FOLD_COMPLEMENTS(FSimplifierOptions.COMPLEMENT),
+		/** x . x = x and x + x = x */
+		REMOVE_DUPLICATES(FSimplifierOptions.DEDUPLICATION),
+		/** x + (x . y) = x */
+		SIMPLE_ABSORPTION(FSimplifierOptions.ABSORPTION),
+		/** (x . y) + (x . y . z) = x . y */
+		SUBSET_ABSORPTION(FSimplifierOptions.ABSORPTION);
+
+		public final FSimplifierOptions option;
+
+		private Pass(final FSimplifierOptions option) {
+			this.option = option;
+		}
+	}
+
+	/** The options used when none are given: every pass, without truth tables. */
+	public static final Set<FSimplifierOptions> DEFAULT_OPTIONS = 
+			EnumSet.range(FSimplifierOptions.STANDARDIZE, FSimplifierOptions.ABSORPTION);
+
+	private final EnumSet<FSimplifierOptions> options;
+
+	/** From an input node to its simplified form. */
+	private final Map<Expr,Expr> memo = new IdentityHashMap<Expr,Expr>();
+
+	// statistics, indexed by Pass.ordinal()
+	private final long[] nanos = new long[Pass.values().length];
+	private final int[] calls = new int[Pass.values().length];
+	private final int[] fired = new int[Pass.values().length];
+	private final long[] nodesRemoved = new long[Pass.values().length];
+
+	public Simplifier() {
+		this(DEFAULT_OPTIONS);
+	}
+
+	public Simplifier(final Set<FSimplifierOptions> options) {
+		this.options = options.isEmpty() ? EnumSet.noneOf(FSimplifierOptions.class) : EnumSet.copyOf(options);
+	}
+
+	public boolean isEnabled(final FSimplifierOptions option) {
+		return options.contains(option);
+	}
+
+	/** The enabled options, for making another Simplifier like this one. */
+	public Set<FSimplifierOptions> options() {
+		return Collections.unmodifiableSet(options);
+	}
+
+	public Expr simplify(final Expr e) {
+		final Expr known = memo.get(e);
+		if (known != null) {
+			return known;
+		}
+		Expr current = simplifyChildren(e);
+		while (true) {
+			final Expr next = current.simplifyOnce(this);
+			if (next == current || next.equals(current)) {
+				// we're done: nothing changed
+				break;
+			}
+			// something changed: the children of next are already simplified
+			// (they are memoized), but the rules might apply to next itself
+			current = simplifyChildren(next);
+		}
+		memo.put(e, current);
+		memo.put(current, current);
+		return current;
+	}
+
+	/**
+	 * Rebuild e with simplified children, if any of them changed.
+	 */
+	private Expr simplifyChildren(final Expr e) {
+		if (e instanceof UnaryExpr) {
+			final UnaryExpr u = (UnaryExpr) e;
+			final Expr child = simplify(u.expr);
+			return child == u.expr ? u : u.newUnaryExpr(child);
+		} else if (e instanceof BinaryExpr) {
+			final BinaryExpr b = (BinaryExpr) e;
+			final Expr left = simplify(b.left);
+			final Expr right = simplify(b.right);
+			return (left == b.left && right == b.right) ? b : b.newBinaryExpr(left, right);
+		} else if (e instanceof NaryExpr) {
+			final NaryExpr n = (NaryExpr) e;
+			final NaryExpr.Builder children = n.newBuilder();
+			boolean change = false;
+			for (final Expr c1 : n.children) {
+				final Expr c2 = simplify(c1);
+				children.add(c2);
+				if (c2 != c1) { change = true; }
+			}
+			return change ? children.build() : n;
+		} else {
+			// leaves
+			return e;
+		}
+	}
+
+	/**
+	 * Apply one pass to e, if it is enabled, and record statistics.
+	 * Called from simplifyOnce().
+	 */
+	<T extends Expr> Expr apply(final Pass pass, final T e, final Function<T, ? extends Expr> rule) {
+		if (!options.contains(pass.option)) {
+			return e;
+		}
+		final int i = pass.ordinal();
+		final long start = System.nanoTime();
+		final Expr result = rule.apply(e);
+		nanos[i] += System.nanoTime() - start;
+		calls[i]++;
+		if (result != e) {
+			fired[i]++;
+			nodesRemoved[i] += localSize(e) - localSize(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Same as apply(), for passes that return the same type they are given.
+	 */
+	@SuppressWarnings("unchecked")
+	<T extends Expr> T applySameType(final Pass pass, final T e, final UnaryOperator<T> rule) {
+		return (T) apply(pass, e, rule);
+	}
+
+	/**
+	 * The node and its direct children: 
+	 * the part of the tree that a single rewrite changes.
+	 */
+	private static int localSize(final Expr e) {
+		if (e instanceof NaryExpr) return 1 + ((NaryExpr)e).children.size();
+		if (e instanceof BinaryExpr) return 3;
+		if (e instanceof UnaryExpr) return 2;
+		return 1;
+	}
+
+	/** Number of distinct nodes simplified so far. */
+	public int size() {
+		return memo.size();
+	}
+
+	/** Total time spent in the pass, in nanoseconds. */
+	public long nanos(final Pass pass) {
+		return nanos[pass.ordinal()];
+	}
+
+	/** Number of times the pass was applied to a node. */
+	public int calls(final Pass pass) {
+		return calls[pass.ordinal()];
+	}
+
+	/** Number of times the pass changed a node. */
+	public int fired(final Pass pass) {
+		return fired[pass.ordinal()];
+	}
+
+	/** 
+	 * Number of nodes the pass removed, counting each rewritten node 
+	 * and its direct children. Negative if the pass added nodes.
+	 */
+	public long nodesRemoved(final Pass pass) {
+		return nodesRemoved[pass.ordinal()];
+	}
+
+	/**
+	 * Add the pass statistics of another Simplifier to this one's.
+	 * The memo tables are not merged.
+	 */
+	public void addStatistics(final Simplifier other) {
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] += other.nanos[i];
+			calls[i] += other.calls[i];
+			fired[i] += other.fired[i];
+			nodesRemoved[i] += other.nodesRemoved[i];
+		}
+	}
+
+	/**
+	 * A table of the statistics of each enabled pass.
+	 */
+	public String report() {
+		final StringBuilder b = new StringBuilder();
+		b.append(String.format("%-20s %10s %10s %10s %10s%n", "pass", "calls", "fired", "removed", "ms"));
+		for (final Pass p : Pass.values()) {
+			if (options.contains(p.option)) {
+				b.append(String.format("%-20s %10d %10d %10d %10.3f%n", 
+						p, calls(p), fired(p), nodesRemoved(p), nanos(p) / 1e6));
+			}
+		}
+		b.append(String.format("%d distinct subterms%n", size()));
+		return b.toString();
+	}
+}
@@ -0,0 +1,68 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.common.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ece351.util.BaseTest351;
+
+public class TestExprFactory extends BaseTest351 {
+
+	@Test
+	public void testSharedLeaves() {
+		assertSame(ExprFactory.var("x"), ExprFactory.var("x"));
+		assertNotSame(ExprFactory.var("x"), ExprFactory.var("y"));
+		assertSame(ConstantExpr.TrueExpr, ExprFactory.constant(true));
+	}
+
+	@Test
+	public void testSharedSubterms() {
+		final Expr e1 = ExprFactory.or(ExprFactory.and(new VarExpr("a"), new VarExpr("b")), ExprFactory.not(new VarExpr("c")));
+		final Expr e2 = ExprFactory.or(ExprFactory.and(ExprFactory.var("a"), ExprFactory.var("b")), ExprFactory.not(ExprFactory.var("c")));
+		assertTrue(e1.repOk());
+		assertSame(e1, e2);
+		assertSame(((OrExpr)e1).left, ((OrExpr)e2).left);
+	}
+
+	@Test
+	public void testInternAgreesWithEquals() {
+		final Expr plain = new NaryAndExpr(new VarExpr("b"), new NotExpr(new VarExpr("a")));
+		final Expr shared = ExprFactory.intern(plain);
+		assertEquals(plain, shared);
+		assertEquals(shared, plain);
+		assertEquals(plain.hashCode(), shared.hashCode());
+		assertSame(shared, ExprFactory.naryAnd(ExprFactory.not(ExprFactory.var("a")), ExprFactory.var("b")));
+		assertTrue(!shared.equals(ExprFactory.naryOr(ExprFactory.not(ExprFactory.var("a")), ExprFactory.var("b"))));
+	}
+
+}
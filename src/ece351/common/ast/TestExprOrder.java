@@ -0,0 +1,106 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.common.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ece351.util.BaseTest351;
+
+public class TestExprOrder extends BaseTest351 {
+
+	private static Expr a() { return new VarExpr("a"); }
+	private static Expr b() { return new VarExpr("b"); }
+	private static Expr c() { return new VarExpr("c"); }
+
+	@Test
+	public void testLeaves() {
+		assertTrue(a().compareTo(b()) < 0);
+		assertTrue(b().compareTo(a()) > 0);
+		assertTrue(ConstantExpr.FalseExpr.compareTo(ConstantExpr.TrueExpr) < 0);
+		// different types are ordered by type
+		assertTrue(ConstantExpr.TrueExpr.compareTo(a()) < 0);
+	}
+
+	@Test
+	public void testConsistentWithEquals() {
+		final Expr[] es = {
+			a(), b(), new NotExpr(a()), new NotExpr(b()),
+			new AndExpr(a(), b()), new AndExpr(b(), a()),
+			new NaryOrExpr(a(), b()), new NaryOrExpr(a(), b(), c()),
+			new NaryOrExpr(new NaryAndExpr(a(), b()), c()),
+			new NaryOrExpr(new NaryAndExpr(a(), c()), b()),
+		};
+		for (final Expr x : es) {
+			for (final Expr y : es) {
+				assertEquals(x + " vs " + y, x.equals(y), x.compareTo(y) == 0);
+				assertEquals(Integer.signum(x.compareTo(y)), -Integer.signum(y.compareTo(x)));
+			}
+			// a structurally equal copy built through the factory compares equal
+			assertEquals(0, x.compareTo(ExprFactory.intern(x)));
+		}
+	}
+
+	@Test
+	public void testChildrenSorted() {
+		final NaryExpr e1 = new NaryAndExpr(c(), new NotExpr(a()), b(), new NaryOrExpr(a(), b()));
+		final NaryExpr e2 = new NaryAndExpr(new NaryOrExpr(b(), a()), b(), new NotExpr(a()), c());
+		assertTrue(e1.repOk());
+		assertEquals(e1.children, e2.children);
+	}
+
+	@Test
+	public void testPrintedForm() {
+		final Expr e = new NaryOrExpr(new AndExpr(a(), new NotExpr(b())), c(), ConstantExpr.TrueExpr);
+		assertEquals("((a and not (b)) or '1' or c)", e.toString());
+		// cached
+		assertTrue(e.toString() == e.toString());
+		assertEquals(new NaryOrExpr(c(), ConstantExpr.TrueExpr, new AndExpr(a(), new NotExpr(b()))).hashCode(), e.hashCode());
+	}
+
+	@Test
+	public void testBuilder() {
+		final NaryExpr.Builder b = NaryOrExpr.builder();
+		for (int i = 499; i >= 0; i--) {
+			b.add(new NaryAndExpr(new VarExpr("x" + i), new NotExpr(new VarExpr("y" + i))));
+		}
+		final NaryExpr e = b.build();
+		assertTrue(e instanceof NaryOrExpr);
+		assertEquals(500, e.children.size());
+		assertTrue(e.repOk());
+		// same children in a different order build the same expression
+		final NaryExpr.Builder b2 = e.newBuilder();
+		for (int i = 0; i < 500; i++) {
+			b2.add(new NaryAndExpr(new NotExpr(new VarExpr("y" + i)), new VarExpr("x" + i)));
+		}
+		assertEquals(e, b2.build());
+	}
+
+}
@@ -0,0 +1,116 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.common.ast;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ece351.util.BaseTest351;
+
+public class TestTruthTable extends BaseTest351 {
+
+	@Test
+	public void testSmall() {
+		final TruthTable a = TruthTable.variable(0, 2);
+		final TruthTable b = TruthTable.variable(1, 2);
+		assertEquals("8", a.and(b).toString());
+		assertEquals("e", a.or(b).toString());
+		assertEquals("6", a.xor(b).toString());
+		assertEquals(TruthTable.constant(true, 2), a.or(a.not()));
+		assertTrue(a.and(a.not()).isConstant());
+		assertFalse(a.isConstant());
+		assertEquals(3, a.or(b).count());
+	}
+
+	@Test
+	public void testOfExpr() {
+		// majority of a, b, c, over the variables in order of occurrence
+		final Expr a = new VarExpr("a");
+		final Expr b = new VarExpr("b");
+		final Expr c = new VarExpr("c");
+		final Expr maj = new NaryOrExpr(new NaryAndExpr(a, b), new NaryAndExpr(a, c), new NaryAndExpr(b, c));
+		final Map<String,Integer> vars = new LinkedHashMap<String,Integer>();
+		final TruthTable t = TruthTable.of(maj, vars);
+		assertEquals(3, t.vars);
+		for (int m = 0; m < 8; m++) {
+			assertEquals(Integer.bitCount(m) >= 2, t.get(m));
+		}
+		assertArrayEquals(new int[]{0, 1, 2}, t.support());
+	}
+
+	@Test
+	public void testOfList() {
+		// the tables of several expressions share one variable index
+		final Expr a = new VarExpr("a");
+		final Expr b = new VarExpr("b");
+		final Expr ab = new NaryAndExpr(a, b);
+		final Map<String,Integer> vars = new LinkedHashMap<String,Integer>();
+		final TruthTable[] t = TruthTable.of(Arrays.asList(ab, new NotExpr(ab), new VarExpr("c")), vars);
+		assertEquals(3, t.length);
+		assertEquals(3, vars.size());
+		assertEquals(TruthTable.of(ab, vars), t[0]);
+		assertEquals(t[0].not(), t[1]);
+		assertEquals(TruthTable.variable(2, 3), t[2]);
+	}
+
+	@Test
+	public void testWide() {
+		// x0 xor x9 over 12 variables spans 64 words
+		final Map<String,Integer> vars = new HashMap<String,Integer>();
+		for (int i = 0; i < 12; i++) {
+			vars.put("x" + i, i);
+		}
+		final TruthTable t = TruthTable.of(new XOrExpr(new VarExpr("x0"), new VarExpr("x9")), vars);
+		assertEquals(12, t.vars);
+		assertEquals(2048, t.count());
+		assertArrayEquals(new int[]{0, 9}, t.support());
+		assertEquals(TruthTable.variable(0, 12).not(), t.cofactor(9, true));
+		assertEquals(TruthTable.variable(9, 12), t.cofactor(0, false));
+		assertEquals(1 << 9, t.firstDifference(TruthTable.variable(0, 12)));
+		assertEquals(-1, t.firstDifference(TruthTable.variable(9, 12).xor(TruthTable.variable(0, 12))));
+	}
+
+	@Test
+	public void testEquivalent() {
+		final Expr a = new VarExpr("a");
+		final Expr b = new VarExpr("b");
+		final Expr nand = new NAndExpr(a, b);
+		final Expr deMorgan = new NaryOrExpr(new NotExpr(a), new NotExpr(b));
+		assertTrue(TruthTable.equivalent(Arrays.asList(nand, a), Arrays.asList(deMorgan, a)));
+		assertFalse(TruthTable.equivalent(Arrays.asList(nand, a), Arrays.asList(deMorgan, b)));
+	}
+
+}
@@ -0,0 +1,394 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.common.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The truth table of a boolean function of a few variables, packed 64
+ * assignments to a long: bit (a % 64) of word (a / 64) is the value of
+ * the function under assignment a, where bit i of a is the value of 
+ * variable i. 
+ * 
+ * Two functions over the same variables are equivalent exactly when 
+ * their tables are equal, so comparing tables is an exact semantic 
+ * check, and a fast one when there are few variables.
+ * 
+ * Immutable.
+ */
+public final class TruthTable {
+
+	/** Largest number of variables: 2^24 assignments take 2MB. */
+	public static final int MAX_VARS = 24;
+
+	/** MASKS[i] is the first word of the table of variable i < 6. */
+	private static final long[] MASKS = {
+		0xAAAAAAAAAAAAAAAAL,
+		0xCCCCCCCCCCCCCCCCL,
+		0xF0F0F0F0F0F0F0F0L,
+		0xFF00FF00FF00FF00L,
+		0xFFFF0000FFFF0000L,
+		0xFFFFFFFF00000000L,
+	};
+
+	/** Number of variables. */
+	public final int vars;
+	private final long[] words;
+
+	private TruthTable(final int vars, final long[] words) {
+		this.vars = vars;
+		this.words = words;
+		// bits beyond 2^vars are always zero, so that equals() works
+		if (vars < 6) {
+			words[0] &= usedBits(vars);
+		}
+		assert repOk();
+	}
+
+	public boolean repOk() {
+		assert vars >= 0 && vars <= MAX_VARS;
+		assert words.length == wordCount(vars);
+		assert vars >= 6 || (words[0] & ~usedBits(vars)) == 0;
+		return true;
+	}
+
+	private static int wordCount(final int vars) {
+		return vars <= 6 ? 1 : 1 << (vars - 6);
+	}
+
+	private static long usedBits(final int vars) {
+		return vars == 6 ? -1L : (1L << (1 << vars)) - 1;
+	}
+
+	private static void checkVars(final int vars) {
+		if (vars < 0 || vars > MAX_VARS) {
+			throw new IllegalArgumentException("truth tables have at most " + MAX_VARS + " variables: " + vars);
+		}
+	}
+
+	/** 
+	 * Word w of the table of variable i: the values of variable i in
+	 * assignments 64w to 64w + 63.
+	 */
+	public static long variableWord(final int i, final int w) {
+		if (i < 6) {
+			return MASKS[i];
+		}
+		return ((w >>> (i - 6)) & 1) != 0 ? -1L : 0L;
+	}
+
+	public static TruthTable constant(final boolean b, final int vars) {
+		checkVars(vars);
+		final long[] words = new long[wordCount(vars)];
+		if (b) {
+			Arrays.fill(words, -1L);
+		}
+		return new TruthTable(vars, words);
+	}
+
+	public static TruthTable variable(final int i, final int vars) {
+		checkVars(vars);
+		if (i < 0 || i >= vars) {
+			throw new IllegalArgumentException("no variable " + i + " among " + vars);
+		}
+		final long[] words = new long[wordCount(vars)];
+		for (int w = 0; w < words.length; w++) {
+			words[w] = variableWord(i, w);
+		}
+		return new TruthTable(vars, words);
+	}
+
+	/**
+	 * Add the variables of e to the index, in the order they are found.
+	 * @return false if the index would need more than max variables
+	 */
+	public static boolean index(final Expr e, final Map<String,Integer> vars, final int max) {
+		return index(e, vars, max, Collections.newSetFromMap(new IdentityHashMap<Expr,Boolean>()));
+	}
+
+	private static boolean index(final Expr e, final Map<String,Integer> vars, final int max, final Set<Expr> visited) {
+		if (!visited.add(e)) {
+			// shared subterm: already indexed
+			return true;
+		}
+		if (e instanceof VarExpr) {
+			final String id = ((VarExpr)e).identifier;
+			if (!vars.containsKey(id)) {
+				if (vars.size() >= max) return false;
+				vars.put(id, vars.size());
+			}
+			return true;
+		} else if (e instanceof UnaryExpr) {
+			return index(((UnaryExpr)e).expr, vars, max, visited);
+		} else if (e instanceof BinaryExpr) {
+			return index(((BinaryExpr)e).left, vars, max, visited) && index(((BinaryExpr)e).right, vars, max, visited);
+		} else if (e instanceof NaryExpr) {
+			for (final Expr c : ((NaryExpr)e).children) {
+				if (!index(c, vars, max, visited)) return false;
+			}
+			return true;
+		} else {
+			// constants have no variables
+			return true;
+		}
+	}
+
+	/**
+	 * The truth table of e, over the variables of the index.
+	 * Variables of e that are not in the index are added to it.
+	 */
+	public static TruthTable of(final Expr e, final Map<String,Integer> vars) {
+		return of(Collections.singletonList(e), vars)[0];
+	}
+
+	/**
+	 * The truth tables of es, over the variables of the index.
+	 * Variables of es that are not in the index are added to it.
+	 * Subterms shared between the expressions are evaluated once.
+	 */
+	public static TruthTable[] of(final List<? extends Expr> es, final Map<String,Integer> vars) {
+		final WordEvaluator evaluator = new WordEvaluator(es, vars);
+		final int n = vars.size();
+		checkVars(n);
+		final long[][] words = new long[es.size()][wordCount(n)];
+		final long[] in = new long[n];
+		final long[] out = new long[es.size()];
+		for (int w = 0; w < wordCount(n); w++) {
+			for (int i = 0; i < n; i++) {
+				in[i] = variableWord(i, w);
+			}
+			evaluator.evaluate(in, out);
+			for (int k = 0; k < out.length; k++) {
+				words[k][w] = out[k];
+			}
+		}
+		final TruthTable[] tables = new TruthTable[es.size()];
+		for (int k = 0; k < tables.length; k++) {
+			tables[k] = new TruthTable(n, words[k]);
+		}
+		return tables;
+	}
+
+	/**
+	 * Whether left.get(k) is equivalent to right.get(k) for every k.
+	 * Compares the functions one word of assignments at a time, so
+	 * it returns at the first difference and never builds the tables.
+	 * The expressions must have at most MAX_VARS variables between them.
+	 */
+	public static boolean equivalent(final List<? extends Expr> left, final List<? extends Expr> right) {
+		if (left.size() != right.size()) {
+			throw new IllegalArgumentException("lists of " + left.size() + " and " + right.size() + " expressions");
+		}
+		final List<Expr> roots = new ArrayList<Expr>(left);
+		roots.addAll(right);
+		final Map<String,Integer> vars = new HashMap<String,Integer>();
+		final WordEvaluator evaluator = new WordEvaluator(roots, vars);
+		final int n = vars.size();
+		checkVars(n);
+		final int pairs = left.size();
+		final long used = n < 6 ? usedBits(n) : -1L;
+		final long[] in = new long[n];
+		final long[] out = new long[roots.size()];
+		for (int w = 0; w < wordCount(n); w++) {
+			for (int i = 0; i < n; i++) {
+				in[i] = variableWord(i, w);
+			}
+			evaluator.evaluate(in, out);
+			for (int k = 0; k < pairs; k++) {
+				if (((out[k] ^ out[k + pairs]) & used) != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** The value under an assignment: bit i is the value of variable i. */
+	public boolean get(final int assignment) {
+		if (assignment < 0 || assignment >= (1 << vars)) {
+			throw new IllegalArgumentException("no assignment " + assignment + " of " + vars + " variables");
+		}
+		return ((words[assignment >>> 6] >>> (assignment & 63)) & 1) != 0;
+	}
+
+	public TruthTable not() {
+		final long[] result = new long[words.length];
+		for (int w = 0; w < result.length; w++) {
+			result[w] = ~words[w];
+		}
+		return new TruthTable(vars, result);
+	}
+
+	public TruthTable and(final TruthTable that) {
+		checkSameVars(that);
+		final long[] result = new long[words.length];
+		for (int w = 0; w < result.length; w++) {
+			result[w] = words[w] & that.words[w];
+		}
+		return new TruthTable(vars, result);
+	}
+
+	public TruthTable or(final TruthTable that) {
+		checkSameVars(that);
+		final long[] result = new long[words.length];
+		for (int w = 0; w < result.length; w++) {
+			result[w] = words[w] | that.words[w];
+		}
+		return new TruthTable(vars, result);
+	}
+
+	public TruthTable xor(final TruthTable that) {
+		checkSameVars(that);
+		final long[] result = new long[words.length];
+		for (int w = 0; w < result.length; w++) {
+			result[w] = words[w] ^ that.words[w];
+		}
+		return new TruthTable(vars, result);
+	}
+
+	private void checkSameVars(final TruthTable that) {
+		if (vars != that.vars) {
+			throw new IllegalArgumentException("tables over " + vars + " and " + that.vars + " variables");
+		}
+	}
+
+	/**
+	 * The function with variable i fixed to the given value.
+	 * It is still over the same variables, but no longer depends on i.
+	 */
+	public TruthTable cofactor(final int i, final boolean value) {
+		if (i < 0 || i >= vars) {
+			throw new IllegalArgumentException("no variable " + i + " among " + vars);
+		}
+		final long[] result = new long[words.length];
+		if (i < 6) {
+			final int shift = 1 << i;
+			for (int w = 0; w < result.length; w++) {
+				if (value) {
+					final long t = words[w] & MASKS[i];
+					result[w] = t | (t >>> shift);
+				} else {
+					final long t = words[w] & ~MASKS[i];
+					result[w] = t | (t << shift);
+				}
+			}
+		} else {
+			final int stride = 1 << (i - 6);
+			for (int w = 0; w < result.length; w++) {
+				result[w] = words[value ? (w | stride) : (w & ~stride)];
+			}
+		}
+		return new TruthTable(vars, result);
+	}
+
+	/** Whether the function depends on variable i. */
+	public boolean dependsOn(final int i) {
+		return !cofactor(i, true).equals(cofactor(i, false));
+	}
+
+	/** The variables the function depends on, in increasing order. */
+	public int[] support() {
+		final int[] result = new int[vars];
+		int n = 0;
+		for (int i = 0; i < vars; i++) {
+			if (dependsOn(i)) {
+				result[n++] = i;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	public boolean isConstant() {
+		final long first = words[0];
+		if (vars < 6) {
+			return first == 0 || first == usedBits(vars);
+		}
+		if (first != 0 && first != -1L) return false;
+		for (final long w : words) {
+			if (w != first) return false;
+		}
+		return true;
+	}
+
+	/** Number of satisfying assignments. */
+	public long count() {
+		long n = 0;
+		for (final long w : words) {
+			n += Long.bitCount(w);
+		}
+		return n;
+	}
+
+	/**
+	 * The first assignment on which the two functions differ,
+	 * or -1 if they are equivalent.
+	 */
+	public int firstDifference(final TruthTable that) {
+		checkSameVars(that);
+		for (int w = 0; w < words.length; w++) {
+			final long d = words[w] ^ that.words[w];
+			if (d != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(d);
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof TruthTable)) return false;
+		final TruthTable that = (TruthTable) obj;
+		return vars == that.vars && Arrays.equals(words, that.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words) * 31 + vars;
+	}
+
+	/** Hexadecimal, most significant word first. */
+	@Override
+	public String toString() {
+		final StringBuilder b = new StringBuilder();
+		for (int w = words.length - 1; w >= 0; w--) {
+			if (vars < 6) {
+				b.append(Long.toHexString(words[w]));
+			} else {
+				b.append(String.format("%016x", words[w]));
+			}
+		}
+		return b.toString();
+	}
+}
@@ -58,13 +58,23 @@ public abstract class UnaryExpr extends Expr {
 		if (!operator().equals(that.operator())) return false;
 		return e.examine(this.expr, that.expr);}
     
-    @Override
-    public final int hashCode() {
-    	return 17 + expr.hashCode();
-    }
+	@Override
+	final int computeFingerprint() {
+		return getClass().getName().hashCode() * 31 + expr.fingerprint();
+	}
+
+	@Override
+	final int compareSameType(final Expr e) {
+		final UnaryExpr that = (UnaryExpr) e;
+		final int f = Integer.compare(fingerprint(), that.fingerprint());
+		if (f != 0) return f;
+		return expr.compareTo(that.expr);
+	}
 
 	@Override
 	public final boolean equals(final Object obj) {
+		final Boolean quick = quickEquals(obj);
+		if (quick != null) return quick;
 		if (!(obj instanceof Examinable)) return false;
 		return examine(Examiner.Equals, (Examinable)obj);
 	}
@@ -75,8 +85,10 @@ public abstract class UnaryExpr extends Expr {
 	}
 
 	@Override
-	public final String toString() {
-		return operator() + " (" + expr + ")";
+	final void print(final StringBuilder b) {
+		b.append(operator()).append(" (");
+		expr.printTo(b);
+		b.append(")");
 	}
 
 }
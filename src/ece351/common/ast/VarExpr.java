@@ -31,7 +31,7 @@ import ece351.util.Examinable;
 
 public final class VarExpr extends Expr {
 	
-	public String identifier;
+	public final String identifier;
 	
 	public VarExpr(final String name){
 		this.identifier = name;
@@ -49,22 +49,20 @@ public final class VarExpr extends Expr {
 	}
 
 
-    public String toString() {
-    	return this.identifier;
-    }
+	@Override
+	void print(final StringBuilder b) {
+		b.append(identifier);
+	}
     
     public Expr accept(final ExprVisitor v){
     	return v.visitVar(this);
     }
 
-    @Override
-    public int hashCode() {
-    	return identifier.hashCode();
-    }
-
 	@Override
 	public boolean equals(final Object obj) {
 		// basics
+		final Boolean quick = quickEquals(obj);
+		if (quick != null) return quick;
 		if (obj == null) return false;
 		if (!getClass().equals(obj.getClass())) return false;
 		final VarExpr that = (VarExpr) obj;
@@ -77,6 +75,16 @@ public final class VarExpr extends Expr {
 		return equals(obj);
 	}
 
+	@Override
+	int computeFingerprint() {
+		return identifier.hashCode();
+	}
+
+	@Override
+	int compareSameType(final Expr e) {
+		return identifier.compareTo(((VarExpr)e).identifier);
+	}
+
 	public String operator() {
 		return "var";
 	}
@@ -0,0 +1,194 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.common.ast;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates expressions on 64 assignments at once: each input is a 
+ * long whose bit i is the value of the input in the i'th assignment, 
+ * and each gate is a single bitwise operation on such words.
+ * 
+ * The expressions are flattened once into an array of gates in
+ * topological order, with shared subterms appearing once, so that 
+ * evaluating a word does no allocation and no dispatch on Expr classes.
+ */
+public final class WordEvaluator {
+
+	private static final byte CONST0 = 0;
+	private static final byte CONST1 = 1;
+	private static final byte INPUT = 2;
+	private static final byte NOT = 3;
+	private static final byte AND = 4;
+	private static final byte OR = 5;
+	private static final byte XOR = 6;
+	private static final byte NAND = 7;
+	private static final byte NOR = 8;
+	private static final byte XNOR = 9;
+
+	/** Per gate: its operation, and its arguments argPool[argStart[g] .. argStart[g+1]). */
+	private byte[] op = new byte[16];
+	private int[] argStart = new int[17];
+	private int[] argPool = new int[32];
+	private int gates = 0;
+	private int args = 0;
+
+	/** Gate of each root. */
+	private final int[] roots;
+	/** Input position of each INPUT gate; unused for other gates. */
+	private int[] inputOf = new int[16];
+
+	private final Map<String,Integer> inputs;
+	private final Map<Expr,Integer> memo = new HashMap<Expr,Integer>();
+
+	/** Values of the gates for the current word. */
+	private final long[] values;
+
+	/**
+	 * @param roots the expressions to evaluate
+	 * @param inputs the position of each input in the words passed to 
+	 * evaluate(). Inputs that are not in the map yet are added to it,
+	 * in the order they are found.
+	 */
+	public WordEvaluator(final List<? extends Expr> roots, final Map<String,Integer> inputs) {
+		this.inputs = inputs;
+		this.roots = new int[roots.size()];
+		for (int i = 0; i < this.roots.length; i++) {
+			this.roots[i] = flatten(roots.get(i));
+		}
+		values = new long[gates];
+		memo.clear();
+	}
+
+	/** Number of distinct gates, including inputs and constants. */
+	public int size() {
+		return gates;
+	}
+
+	/**
+	 * Evaluate the roots on one word of assignments.
+	 * @param in one word per input, by input position
+	 * @param out one word per root
+	 */
+	public void evaluate(final long[] in, final long[] out) {
+		final long[] v = values;
+		for (int g = 0; g < gates; g++) {
+			final int from = argStart[g];
+			final int to = argStart[g + 1];
+			long x;
+			switch (op[g]) {
+			case CONST0: x = 0L; break;
+			case CONST1: x = -1L; break;
+			case INPUT: x = in[inputOf[g]]; break;
+			case NOT: x = ~v[argPool[from]]; break;
+			case AND: case NAND:
+				x = -1L;
+				for (int a = from; a < to; a++) x &= v[argPool[a]];
+				if (op[g] == NAND) x = ~x;
+				break;
+			case OR: case NOR:
+				x = 0L;
+				for (int a = from; a < to; a++) x |= v[argPool[a]];
+				if (op[g] == NOR) x = ~x;
+				break;
+			case XOR: x = v[argPool[from]] ^ v[argPool[from + 1]]; break;
+			case XNOR: x = ~(v[argPool[from]] ^ v[argPool[from + 1]]); break;
+			default: throw new IllegalStateException();
+			}
+			v[g] = x;
+		}
+		for (int r = 0; r < roots.length; r++) {
+			out[r] = v[roots[r]];
+		}
+	}
+
+	private int flatten(final Expr e) {
+		final Integer known = memo.get(e);
+		if (known != null) {
+			return known;
+		}
+		final int g;
+		if (e instanceof ConstantExpr) {
+			g = gate(((ConstantExpr) e).b ? CONST1 : CONST0);
+		} else if (e instanceof VarExpr) {
+			final String id = ((VarExpr) e).identifier;
+			Integer position = inputs.get(id);
+			if (position == null) {
+				position = inputs.size();
+				inputs.put(id, position);
+			}
+			g = gate(INPUT);
+			inputOf[g] = position;
+		} else if (e instanceof NotExpr) {
+			g = gate(NOT, flatten(((NotExpr) e).expr));
+		} else if (e instanceof BinaryExpr) {
+			final BinaryExpr b = (BinaryExpr) e;
+			g = gate(binaryOp(b), flatten(b.left), flatten(b.right));
+		} else if (e instanceof NaryExpr) {
+			final List<Expr> children = ((NaryExpr) e).children;
+			final int[] a = new int[children.size()];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = flatten(children.get(i));
+			}
+			g = gate(e instanceof NaryAndExpr ? AND : OR, a);
+		} else {
+			throw new IllegalArgumentException("unknown expression type: " + e.getClass().getName());
+		}
+		memo.put(e, g);
+		return g;
+	}
+
+	private static byte binaryOp(final BinaryExpr e) {
+		if (e instanceof AndExpr) return AND;
+		if (e instanceof OrExpr) return OR;
+		if (e instanceof XOrExpr) return XOR;
+		if (e instanceof NAndExpr) return NAND;
+		if (e instanceof NOrExpr) return NOR;
+		if (e instanceof XNOrExpr || e instanceof EqualExpr) return XNOR;
+		throw new IllegalArgumentException("unknown expression type: " + e.getClass().getName());
+	}
+
+	/** Append a gate; its arguments must already be gates. */
+	private int gate(final byte operation, final int... arguments) {
+		if (gates == op.length) {
+			op = Arrays.copyOf(op, gates * 2);
+			argStart = Arrays.copyOf(argStart, gates * 2 + 1);
+			inputOf = Arrays.copyOf(inputOf, gates * 2);
+		}
+		if (args + arguments.length > argPool.length) {
+			argPool = Arrays.copyOf(argPool, Math.max(argPool.length * 2, args + arguments.length));
+		}
+		System.arraycopy(arguments, 0, argPool, args, arguments.length);
+		args += arguments.length;
+		op[gates] = operation;
+		argStart[gates + 1] = args;
+		return gates++;
+	}
+}
@@ -45,6 +45,6 @@ public final class XNOrExpr extends CommutativeBinaryExpr {
 	}
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new XNOrExpr(left, right);
+		return ExprFactory.xnor(left, right);
 	}
 }
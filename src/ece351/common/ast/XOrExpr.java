@@ -44,6 +44,6 @@ public final class XOrExpr extends CommutativeBinaryExpr {
 	}
 	@Override
 	public BinaryExpr newBinaryExpr(final Expr left, final Expr right) {
-		return new XOrExpr(left, right);
+		return ExprFactory.xor(left, right);
 	}
 }
@@ -26,12 +26,11 @@
 
 package ece351.common.visitor;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.BinaryExpr;
 import ece351.common.ast.Expr;
 import ece351.common.ast.NaryExpr;
 import ece351.common.ast.UnaryExpr;
+import ece351.util.PersistentVector;
 
 /**
  * This visitor rewrites the AST from the bottom up.
@@ -67,16 +66,16 @@ public abstract class PostOrderExprVisitor extends ExprVisitor {
 	@Override
 	public final Expr traverseNaryExpr(NaryExpr e) {
 		// children first
-		ImmutableList<Expr> children = ImmutableList.of();
+		final PersistentVector.Builder<Expr> children = new PersistentVector.Builder<Expr>(e.children.size());
 		boolean change = false;
 		for (final Expr c1 : e.children) {
 			final Expr c2 = traverseExpr(c1);
-			children = children.append(c2);
+			children.add(c2);
 			if (c2 != c1) { change = true; }
 		}
 		// only rewrite if something changed
 		if (change) {
-			e = e.newNaryExpr(children);
+			e = e.newNaryExpr(children.build());
 		}
 		// now parent
 		return e.accept(this);
@@ -33,8 +33,6 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
@@ -51,6 +49,7 @@ import ece351.common.ast.XNOrExpr;
 import ece351.common.ast.XOrExpr;
 import ece351.common.visitor.PostOrderExprVisitor;
 import ece351.f.ast.FProgram;
+import ece351.util.PersistentVector;
 
 public final class InlineIntermediateVariables extends PostOrderExprVisitor {
 
@@ -99,7 +98,7 @@ public final class InlineIntermediateVariables extends PostOrderExprVisitor {
 		if (oldestCount == count || iteration >= MAX) {
 			// nothing changed, or we have run out of budget: we are done
 			// construct a new FProgram to return
-			ImmutableList<AssignmentStatement> result = ImmutableList.of();
+			PersistentVector<AssignmentStatement> result = PersistentVector.of();
 			for (final Map.Entry<String, AssignmentStatement> me : defns.entrySet()) {
 				final String n = me.getKey();
 				if (!intermediateVars.contains(n)) {
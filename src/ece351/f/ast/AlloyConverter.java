@@ -26,6 +26,8 @@
 
 package ece351.f.ast;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -47,21 +49,85 @@ import ece351.common.ast.VarExpr;
 import ece351.common.ast.XNOrExpr;
 import ece351.common.ast.XOrExpr;
 import ece351.common.visitor.ExprVisitor;
-import ece351.f.analysis.DetermineInputVars;
 import ece351.util.Debug;
 
+/**
+ * Writes an Alloy model that checks whether two FPrograms are equivalent.
+ * 
+ * Subterms that occur more than once, in either program, are written 
+ * once, as a function with no arguments, and referred to by name. So 
+ * the model is linear in the size of the expression DAG, rather than 
+ * in the size of the tree, which can be exponentially larger.
+ */
 public final class AlloyConverter extends ExprVisitor {
 
 	private final static String linesep = System.getProperty("line.separator");
 	
-	private final StringBuilder b = new StringBuilder();
+	/** Where the expression being visited is written. */
+	private StringBuilder b = new StringBuilder();
+
+	/** Number of references to each subterm, over both programs. */
+	private final Map<Expr,Integer> references = new HashMap<Expr,Integer>();
+
+	/** Names of the shared subterms written so far. */
+	private final Map<Expr,String> names = new HashMap<Expr,String>();
+
+	/** Input variables of both programs, found while counting. */
+	private final Set<String> inputVars = new TreeSet<String>();
+
+	/** Definitions of the shared subterms, each after those it uses. */
+	private final StringBuilder definitions = new StringBuilder();
+
+	private AlloyConverter(final FProgram fp1, final FProgram fp2) {
+		for (final AssignmentStatement a : fp1.formulas) count(a.expr);
+		for (final AssignmentStatement a : fp2.formulas) count(a.expr);
+	}
 
-	private AlloyConverter(final Expr e) {
-		traverseExpr(e);
+	private void count(final Expr e) {
+		final Integer n = references.get(e);
+		if (n != null) {
+			references.put(e, n + 1);
+			return;
+		}
+		references.put(e, 1);
+		if (e instanceof VarExpr) {
+			inputVars.add(((VarExpr) e).identifier);
+		} else if (e instanceof UnaryExpr) {
+			count(((UnaryExpr) e).expr);
+		} else if (e instanceof BinaryExpr) {
+			count(((BinaryExpr) e).left);
+			count(((BinaryExpr) e).right);
+		} else if (e instanceof NaryExpr) {
+			for (final Expr c : ((NaryExpr) e).children) {
+				count(c);
+			}
+		}
+	}
+
+	/**
+	 * Write e, or the name of its definition if it is shared.
+	 */
+	private void emit(final Expr e) {
+		if (e instanceof VarExpr || e instanceof ConstantExpr || references.get(e) < 2) {
+			e.accept(this);
+			return;
+		}
+		String name = names.get(e);
+		if (name == null) {
+			final StringBuilder outer = b;
+			b = new StringBuilder();
+			e.accept(this);
+			name = "shared" + names.size();
+			names.put(e, name);
+			definitions.append("fun ").append(name).append("[]:Var{").append(b).append("}").append(linesep);
+			b = outer;
+		}
+		b.append(' ').append(name).append(' ');
 	}
 	
 	public static String convert(final FProgram fp1, final FProgram fp2) {
 		final StringBuilder m = new StringBuilder();
+		final AlloyConverter c = new AlloyConverter(fp1, fp2);
 		
 		m.append(linesep);
 		// signatures
@@ -98,9 +164,8 @@ public final class AlloyConverter extends ExprVisitor {
 		m.append("fun _not[a:Var]:Var{{v':Var|v'.v!=a.v}}");
 		m.append(linesep);
 		m.append("one sig ");
-		final Set<String> inputVars = new TreeSet<String>();
-		inputVars.addAll(DetermineInputVars.inputVars(fp1));
-		inputVars.addAll(DetermineInputVars.inputVars(fp2));
+		// each subterm once: DetermineInputVars would walk the whole tree
+		final Set<String> inputVars = c.inputVars;
 		final int inputVarSize1 = inputVars.size()-1;
 		int counter = 0;
 		for (final String v : inputVars) {
@@ -116,9 +181,12 @@ public final class AlloyConverter extends ExprVisitor {
 		m.append(" extends Var {}");
 		m.append(linesep);
 		
-		// predicates
-		pred(fp1, m, "1");
-		pred(fp2, m, "2");
+		// predicates, after the shared subterms they use
+		final StringBuilder preds = new StringBuilder();
+		c.pred(fp1, preds, "1");
+		c.pred(fp2, preds, "2");
+		m.append(c.definitions);
+		m.append(preds);
 		
 		// check
 		m.append("assert equivalent {");
@@ -148,13 +216,15 @@ public final class AlloyConverter extends ExprVisitor {
 		return "_" + varName;
 	}
 	
-	private static void pred(final FProgram fp, final StringBuilder m, final String suffix) {
+	private void pred(final FProgram fp, final StringBuilder m, final String suffix) {
 		for (final AssignmentStatement a : fp.formulas) {
 			m.append("pred ");
 			m.append(sanitize(a.outputVar));
 			m.append(suffix);
 			m.append("[] {some ");
-			m.append((new AlloyConverter(a.expr)).toString());
+			b = new StringBuilder();
+			emit(a.expr);
+			m.append(b);
 			m.append(".v}");
 			m.append(linesep);
 		}
@@ -186,7 +256,7 @@ public final class AlloyConverter extends ExprVisitor {
 	@Override
 	public Expr visitNot(final NotExpr e) {
 		b.append(" _not[ ");
-		e.expr.accept(this);
+		emit(e.expr);
 		b.append("] ");
 		return e;
 	}
@@ -206,9 +276,9 @@ public final class AlloyConverter extends ExprVisitor {
 	private void helperBXE(final BinaryExpr e) {
 		b.append("_"+(e.operator().equals("=")?"equal":e.operator()));
 		b.append("[ ");
-		e.left.accept(this);
+		emit(e.left);
 		b.append(", ");
-		e.right.accept(this);
+		emit(e.right);
 		b.append("] ");
 	}
 	@Override
@@ -253,10 +323,10 @@ public final class AlloyConverter extends ExprVisitor {
 		for(int i=0;i<e.children.size()-1;i++){
 			b.append("_"+(e.operator().equals("=")?"equal":e.operator()));
 			b.append("[ ");
-			e.children.get(i).accept(this);
+			emit(e.children.get(i));
 			b.append(", ");
 		}
-		e.children.get(size1).accept(this);
+		emit(e.children.get(size1));
 		for(int i=0;i<size1;i++){
 			b.append("] ");
 		}
@@ -26,48 +26,42 @@
 
 package ece351.f.ast;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
-
-import org.parboiled.common.ImmutableList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.Simplifier;
 import ece351.common.ast.VarExpr;
+import ece351.f.sat.EquivalenceChecker;
+import ece351.util.CommandLine;
+import ece351.util.CommandLine.FSimplifierOptions;
+import ece351.util.Debug;
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 import ece351.util.RunAlloy351;
 
 
 public final class FProgram implements Examinable {
 	
-    public final ImmutableList<AssignmentStatement> formulas;
+    public final PersistentVector<AssignmentStatement> formulas;
 
     public FProgram() {
-    	this.formulas = ImmutableList.of();
+    	this.formulas = PersistentVector.of();
 	}
 
-    /**
-     * Construct a new FProgram from a given immutable list of formulas.
-     * We can just alias the argument because it is immutable.
-     */
-    public FProgram(final ImmutableList<AssignmentStatement> formulas) {
-    	this.formulas = formulas;
-    }
-    
     /**
      * Construct a new FProgram from a given list of formulas.
-     * We might need to make a defensive copy if the list is mutable.
+     * If the argument is a PersistentVector it is immutable and we alias it,
+     * otherwise we make a defensive copy.
      */
     public FProgram(final List<AssignmentStatement> formulas) {
-    	if (formulas instanceof ImmutableList<?>) {
-    		// argument is immutable, alias it
-    		this.formulas = (ImmutableList<AssignmentStatement>)formulas;
-    	} else {
-    		// argument is mutable, make a defensive copy
-    		this.formulas = ImmutableList.copyOf(formulas);
-    	}
+    	this.formulas = PersistentVector.copyOf(formulas);
     }
     
 	public boolean repOk() {
@@ -89,8 +83,8 @@ public final class FProgram implements Examinable {
 	}
 
 	public FProgram appendAll(final FProgram p) {
-		ImmutableList<AssignmentStatement> result;
-		ImmutableList<AssignmentStatement> rest;
+		PersistentVector<AssignmentStatement> result;
+		PersistentVector<AssignmentStatement> rest;
 		// determine which is longer and which is shorter
 		if (formulas.size() > p.formulas.size()) {
 			result = this.formulas;
@@ -108,12 +102,99 @@ public final class FProgram implements Examinable {
 	}
 
     public FProgram simplify() {
+    	return simplify(new Simplifier());
+    }
+
+    /**
+     * Simplify with the passes selected by the -o options,
+     * and print the statistics of each pass when debugging.
+     */
+    public FProgram simplify(final CommandLine c) {
+    	final Simplifier simplifier = new Simplifier(c.simplifierOpts);
+    	final FProgram result = c.parallelism > 1 
+    			? simplifyInParallel(simplifier, c.parallelism) 
+    			: simplify(simplifier);
+    	if (c.debug) {
+    		Debug.msg(simplifier.report());
+    	}
+    	return result;
+    }
+
+    public FProgram simplify(final Simplifier simplifier) {
+    	// one Simplifier for all formulas: they often share subterms
     	final List<AssignmentStatement> newformulas = new ArrayList<AssignmentStatement>(formulas.size());
     	for (final AssignmentStatement f : formulas) {
-    		newformulas.add(f.simplify());
+    		newformulas.add(f.simplify(simplifier));
     	}
     	return new FProgram(newformulas);
     }
+
+    public FProgram simplifyInParallel(final int parallelism) {
+    	return simplifyInParallel(new Simplifier(), parallelism);
+    }
+
+    /**
+     * Simplify the formulas on a fork-join pool of the given size.
+     * The formulas are independent and the AST is immutable, so they can
+     * be simplified concurrently. Each task simplifies a contiguous slice
+     * of the formulas with its own Simplifier, so subterms shared within
+     * a slice are still simplified once. The result has the formulas in 
+     * the same order as the sequential simplify(). The pass statistics of
+     * all tasks are added to stats.
+     */
+    public FProgram simplifyInParallel(final Simplifier stats, final int parallelism) {
+    	if (parallelism <= 1 || formulas.size() <= 1) {
+    		return simplify(stats);
+    	}
+    	final AssignmentStatement[] results = new AssignmentStatement[formulas.size()];
+    	// a few slices per thread, so that the work balances
+    	final int grain = Math.max(1, formulas.size() / (4 * parallelism));
+    	final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    	try {
+    		stats.addStatistics(pool.invoke(new SimplifyTask(stats.options(), results, 0, results.length, grain)));
+    	} finally {
+    		pool.shutdown();
+    	}
+    	return new FProgram(Arrays.asList(results));
+    }
+
+    /**
+     * Simplify formulas [from, to) into results, splitting in halves 
+     * down to grain formulas per task. Returns the Simplifier statistics.
+     */
+    private final class SimplifyTask extends RecursiveTask<Simplifier> {
+    	private static final long serialVersionUID = 1L;
+    	private final Set<FSimplifierOptions> options;
+    	private final AssignmentStatement[] results;
+    	private final int from;
+    	private final int to;
+    	private final int grain;
+
+    	SimplifyTask(final Set<FSimplifierOptions> options, final AssignmentStatement[] results, final int from, final int to, final int grain) {
+    		this.options = options;
+    		this.results = results;
+    		this.from = from;
+    		this.to = to;
+    		this.grain = grain;
+    	}
+
+    	@Override
+    	protected Simplifier compute() {
+    		if (to - from <= grain) {
+    			final Simplifier simplifier = new Simplifier(options);
+    			for (int i = from; i < to; i++) {
+    				results[i] = formulas.get(i).simplify(simplifier);
+    			}
+    			return simplifier;
+    		}
+    		final int mid = (from + to) >>> 1;
+    		final SimplifyTask left = new SimplifyTask(options, results, from, mid, grain);
+    		left.fork();
+    		final Simplifier right = new SimplifyTask(options, results, mid, to, grain).compute();
+    		right.addStatistics(left.join());
+    		return right;
+    	}
+    }
     
     public Set<VarExpr> outputVars() {
     	final Set<VarExpr> vars = new TreeSet<VarExpr>();
@@ -160,8 +241,9 @@ public final class FProgram implements Examinable {
 	}
 
 	/**
-	 * Check that two FPrograms are equivalent by translating them to SAT
-	 * and asking a SAT solver to compute the answer.
+	 * Check that two FPrograms are equivalent, by the cheapest check 
+	 * that decides it: structure, simulation, truth tables, or SAT.
+	 * @see EquivalenceChecker
 	 */
 	@Override
 	public boolean equivalent(final Examinable obj) {
@@ -174,15 +256,16 @@ public final class FProgram implements Examinable {
 		assert repOk();
 		assert that.repOk();
 		
-		// check that we have the same output variables
-		final int size = this.formulas.size();
-		if (size != that.formulas.size()) return false;
-		final Set<VarExpr> thisOutputVars = this.outputVars();
-		final Set<VarExpr> thatOutputVars = that.outputVars();
-		if (!thisOutputVars.equals(thatOutputVars)) return false;
-		// input variables could be different, because some
-		// of them might be effectively do not care
-		// so do not need to check input vars
+		return EquivalenceChecker.GLOBAL.check(this, that).equivalent;
+	}
+
+	/**
+	 * Check that two FPrograms are equivalent by translating them to Alloy,
+	 * which Alloy then translates to SAT. One check at a time: see 
+	 * RunAlloy351.check().
+	 */
+	public boolean equivalentByAlloy(final FProgram that) {
+		if (!sameOutputVars(that)) return false;
 		
 		// generate the Alloy specification
 		// (will be translated to SAT in the next step)
@@ -194,4 +277,30 @@ public final class FProgram implements Examinable {
 		return result;
 	}
 
+	/**
+	 * Check that two FPrograms are equivalent by building the Kodkod 
+	 * formula directly, skipping the Alloy parser and typechecker.
+	 */
+	public boolean equivalentByKodkod(final FProgram that) {
+		if (!sameOutputVars(that)) return false;
+		return KodkodConverter.equivalent(this, that);
+	}
+
+	private boolean sameOutputVars(final FProgram that) {
+		// only run this on well-formed ASTs
+		assert repOk();
+		assert that.repOk();
+		
+		// check that we have the same output variables
+		final int size = this.formulas.size();
+		if (size != that.formulas.size()) return false;
+		final Set<VarExpr> thisOutputVars = this.outputVars();
+		final Set<VarExpr> thatOutputVars = that.outputVars();
+		if (!thisOutputVars.equals(thatOutputVars)) return false;
+		// input variables could be different, because some
+		// of them might be effectively do not care
+		// so do not need to check input vars
+		return true;
+	}
+
 }
@@ -0,0 +1,271 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ece351.common.ast.AndExpr;
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.BinaryExpr;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.EqualExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NAndExpr;
+import ece351.common.ast.NOrExpr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.OrExpr;
+import ece351.common.ast.UnaryExpr;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.XNOrExpr;
+import ece351.common.ast.XOrExpr;
+import ece351.common.visitor.ExprVisitor;
+import kodkod.ast.Formula;
+import kodkod.ast.Relation;
+import kodkod.engine.Solution;
+import kodkod.engine.Solver;
+import kodkod.engine.satlab.SATFactory;
+import kodkod.instance.Bounds;
+import kodkod.instance.TupleSet;
+import kodkod.instance.Universe;
+
+/**
+ * Checks the equivalence of two FPrograms by building the Kodkod
+ * formula directly, instead of writing an Alloy model and having Alloy
+ * parse, typecheck and translate it (see AlloyConverter).
+ * 
+ * The universe has a single atom, standing for true. Each input 
+ * variable is a unary relation bounded by the empty set below and by 
+ * the set of that atom above, so the variable is true when the 
+ * relation is not empty. Expressions then become propositional 
+ * formulas over these relations. The universe, its tuple sets and the 
+ * relations are made once and shared by every check; each check only 
+ * makes new Bounds.
+ * 
+ * Formulas are memoized per subterm, so shared subterms become shared
+ * Kodkod nodes, which Kodkod translates once. The converter is an 
+ * ExprVisitor: the traverse methods convert the operands, and the visit
+ * methods combine them into the formula for the operator.
+ */
+public final class KodkodConverter extends ExprVisitor {
+
+	private static final Universe UNIVERSE = new Universe("true");
+	private static final TupleSet NONE = UNIVERSE.factory().noneOf(1);
+	private static final TupleSet TRUE = UNIVERSE.factory().setOf("true");
+
+	/** The relation for each input variable, by name. */
+	private static final ConcurrentMap<String,Relation> RELATIONS = new ConcurrentHashMap<String,Relation>();
+
+	private final Bounds bounds = new Bounds(UNIVERSE);
+	private final Map<Expr,Formula> formulas = new HashMap<Expr,Formula>();
+
+	/** The converted operands of the expression being visited. */
+	private Formula left, right;
+	private List<Formula> operands;
+	/** The formula for the expression just visited. */
+	private Formula result;
+
+	private KodkodConverter() {}
+
+	/**
+	 * Whether fp1 and fp2 compute the same value for each output.
+	 * They must have the same output variables.
+	 */
+	public static boolean equivalent(final FProgram fp1, final FProgram fp2) {
+		final KodkodConverter c = new KodkodConverter();
+		final Formula same = c.convert(fp1, fp2);
+		final Solver solver = new Solver();
+		solver.options().setSolver(SATFactory.DefaultSAT4J);
+		// equivalent if no instance makes some pair of outputs differ
+		final Solution solution = solver.solve(same.not(), c.bounds);
+		return solution.instance() == null;
+	}
+
+	/**
+	 * The formula that each output of fp1 equals the same output of fp2.
+	 */
+	private Formula convert(final FProgram fp1, final FProgram fp2) {
+		final Map<VarExpr,AssignmentStatement> others = new TreeMap<VarExpr,AssignmentStatement>();
+		for (final AssignmentStatement a : fp2.formulas) {
+			others.put(a.outputVar, a);
+		}
+		Formula same = Formula.TRUE;
+		for (final AssignmentStatement a1 : fp1.formulas) {
+			final AssignmentStatement a2 = others.get(a1.outputVar);
+			if (a2 == null) {
+				throw new IllegalArgumentException("no formula for " + a1.outputVar);
+			}
+			same = same.and(formula(a1.expr).iff(formula(a2.expr)));
+		}
+		return same;
+	}
+
+	/** The formula for e, converting it only once if it is shared. */
+	private Formula formula(final Expr e) {
+		final Formula known = formulas.get(e);
+		if (known != null) {
+			return known;
+		}
+		traverseExpr(e);
+		formulas.put(e, result);
+		return result;
+	}
+
+	@Override
+	public Expr traverseNaryExpr(final NaryExpr e) {
+		final List<Formula> fs = new ArrayList<Formula>(e.children.size());
+		for (final Expr c : e.children) {
+			fs.add(formula(c));
+		}
+		operands = fs;
+		return e.accept(this);
+	}
+
+	@Override
+	public Expr traverseBinaryExpr(final BinaryExpr e) {
+		final Formula l = formula(e.left);
+		final Formula r = formula(e.right);
+		left = l;
+		right = r;
+		return e.accept(this);
+	}
+
+	@Override
+	public Expr traverseUnaryExpr(final UnaryExpr e) {
+		left = formula(e.expr);
+		return e.accept(this);
+	}
+
+	@Override
+	public Expr visitConstant(final ConstantExpr e) {
+		result = e.b ? Formula.TRUE : Formula.FALSE;
+		return e;
+	}
+
+	@Override
+	public Expr visitVar(final VarExpr e) {
+		result = input(e.identifier).some();
+		return e;
+	}
+
+	// the traverse methods leave the converted operands in left, right or operands
+
+	@Override
+	public Expr visitNot(final NotExpr e) {
+		result = left.not();
+		return e;
+	}
+
+	@Override
+	public Expr visitAnd(final AndExpr e) {
+		result = left.and(right);
+		return e;
+	}
+
+	@Override
+	public Expr visitOr(final OrExpr e) {
+		result = left.or(right);
+		return e;
+	}
+
+	@Override
+	public Expr visitNAnd(final NAndExpr e) {
+		result = left.and(right).not();
+		return e;
+	}
+
+	@Override
+	public Expr visitNOr(final NOrExpr e) {
+		result = left.or(right).not();
+		return e;
+	}
+
+	@Override
+	public Expr visitXOr(final XOrExpr e) {
+		result = left.iff(right).not();
+		return e;
+	}
+
+	@Override
+	public Expr visitXNOr(final XNOrExpr e) {
+		result = left.iff(right);
+		return e;
+	}
+
+	@Override
+	public Expr visitEqual(final EqualExpr e) {
+		result = left.iff(right);
+		return e;
+	}
+
+	@Override
+	public Expr visitNaryAnd(final NaryAndExpr e) {
+		Formula f = Formula.TRUE;
+		for (final Formula o : operands) {
+			f = f.and(o);
+		}
+		result = f;
+		return e;
+	}
+
+	@Override
+	public Expr visitNaryOr(final NaryOrExpr e) {
+		Formula f = Formula.FALSE;
+		for (final Formula o : operands) {
+			f = f.or(o);
+		}
+		result = f;
+		return e;
+	}
+
+	/**
+	 * The relation for an input variable, bounded in this check.
+	 * Called once per variable, since formulas are memoized.
+	 */
+	private Relation input(final String name) {
+		Relation r = RELATIONS.get(name);
+		if (r == null) {
+			final Relation fresh = Relation.unary(name);
+			r = RELATIONS.putIfAbsent(name, fresh);
+			if (r == null) {
+				r = fresh;
+			}
+		}
+		bounds.bound(r, NONE, TRUE);
+		return r;
+	}
+
+}
@@ -0,0 +1,74 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ece351.common.ast.Expr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.VarExpr;
+import ece351.util.BaseTest351;
+
+public class TestAlloyConverter extends BaseTest351 {
+
+	private static int occurrences(final String s, final String t) {
+		int n = 0;
+		for (int i = s.indexOf(t); i >= 0; i = s.indexOf(t, i + 1)) {
+			n++;
+		}
+		return n;
+	}
+
+	@Test
+	public void testSharedSubtermsOnce() {
+		// the tree has 2^40 leaves
+		final Expr e = chain(40);
+		final String model = AlloyConverter.convert(program(e), program(e));
+		assertTrue(model.length() < 20000);
+		// each level is shared, and defined once
+		assertEquals(40, occurrences(model, "fun shared"));
+		// the top is shared by the two programs
+		assertEquals(1, occurrences(model, "pred _x1[] {some  shared39 .v}"));
+		assertEquals(1, occurrences(model, "pred _x2[] {some  shared39 .v}"));
+	}
+
+	@Test
+	public void testTreeUnchanged() {
+		final String model = AlloyConverter.convert(
+				program(new NaryAndExpr(new VarExpr("a"), new VarExpr("b"))),
+				program(new NotExpr(new VarExpr("a"))));
+		assertEquals(0, occurrences(model, "shared"));
+		assertTrue(model.contains("pred _x1[] {some _and[ _a, _b] .v}"));
+		assertTrue(model.contains("pred _x2[] {some  _not[ _a] .v}"));
+	}
+
+}
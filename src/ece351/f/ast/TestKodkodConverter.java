@@ -0,0 +1,93 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.ast;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ece351.common.ast.AndExpr;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.EqualExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NAndExpr;
+import ece351.common.ast.NOrExpr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.OrExpr;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.XNOrExpr;
+import ece351.common.ast.XOrExpr;
+import ece351.util.BaseTest351;
+
+public class TestKodkodConverter extends BaseTest351 {
+
+	private static final Expr A = new VarExpr("a");
+	private static final Expr B = new VarExpr("b");
+
+	private static boolean equivalent(final Expr e1, final Expr e2) {
+		return KodkodConverter.equivalent(program(e1), program(e2));
+	}
+
+	@Test
+	public void testEquivalent() {
+		final Expr xor = new NaryOrExpr(new NaryAndExpr(A, new NotExpr(B)), new NaryAndExpr(new NotExpr(A), B));
+		assertTrue(equivalent(new XOrExpr(A, B), xor));
+		assertTrue(equivalent(new XNOrExpr(A, B), new NotExpr(xor)));
+		assertTrue(equivalent(new XNOrExpr(A, B), new EqualExpr(A, B)));
+		assertTrue(equivalent(new NAndExpr(A, B), new OrExpr(new NotExpr(A), new NotExpr(B))));
+		assertTrue(equivalent(new NOrExpr(A, B), new AndExpr(new NotExpr(A), new NotExpr(B))));
+		assertTrue(equivalent(new NaryOrExpr(A, new NotExpr(A)), ConstantExpr.TrueExpr));
+		assertTrue(equivalent(new NaryAndExpr(A, new NotExpr(A)), ConstantExpr.FalseExpr));
+	}
+
+	@Test
+	public void testNotEquivalent() {
+		assertFalse(equivalent(new XOrExpr(A, B), new XNOrExpr(A, B)));
+		assertFalse(equivalent(new EqualExpr(A, B), new XOrExpr(A, B)));
+		assertFalse(equivalent(new NAndExpr(A, B), new NOrExpr(A, B)));
+		assertFalse(equivalent(A, ConstantExpr.TrueExpr));
+		assertFalse(equivalent(new NaryOrExpr(A, B), new NaryAndExpr(A, B)));
+	}
+
+	@Test
+	public void testNoInputs() {
+		assertTrue(equivalent(ConstantExpr.TrueExpr, new NotExpr(ConstantExpr.FalseExpr)));
+		assertFalse(equivalent(ConstantExpr.TrueExpr, ConstantExpr.FalseExpr));
+	}
+
+	@Test
+	public void testSharedSubtermsOnce() {
+		// the tree has 2^40 leaves, but 40 distinct levels
+		final Expr e = chain(40);
+		assertTrue(equivalent(e, e));
+		assertTrue(program(e).equivalentByKodkod(program(e)));
+	}
+
+}
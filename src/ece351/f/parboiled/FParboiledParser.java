@@ -31,13 +31,11 @@ import java.lang.invoke.MethodHandles;
 import org.parboiled.Rule;
 import org.parboiled.support.Var;
 
-import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.Constants;
 import ece351.common.ast.Expr;
-import ece351.common.ast.NotExpr;
-import ece351.common.ast.OrExpr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.VarExpr;
 import ece351.f.ast.FProgram;
 import ece351.util.CommandLine;
@@ -118,7 +116,7 @@ public /*final*/ class FParboiledParser extends FBase implements Constants {
 						Sequence(
 								Sequence(W0(), OR(), W0(), Term(), W0()),
 								swap(),
-								push(new OrExpr(pop(), pop()))
+								push(ExprFactory.or((Expr)pop(), (Expr)pop()))
 								)
 						)
 				);
@@ -131,7 +129,7 @@ public /*final*/ class FParboiledParser extends FBase implements Constants {
 						Sequence(
 								Sequence(W0(), AND(), W0(), Factor(), W0()),
 								swap(),
-								push(new AndExpr(pop(), pop()))
+								push(ExprFactory.and((Expr)pop(), (Expr)pop()))
 								)
 						)
 				);
@@ -141,7 +139,7 @@ public /*final*/ class FParboiledParser extends FBase implements Constants {
 		return FirstOf(
 				Sequence(
 						Sequence(NOT(), W0(), Factor()),
-						push(new NotExpr((Expr)pop()))
+						push(ExprFactory.not((Expr)pop()))
 						),
 				Sequence(Ch('('), W0(), Expr(), W0(), Ch(')')),
 				Var(),
@@ -162,7 +160,7 @@ public /*final*/ class FParboiledParser extends FBase implements Constants {
 		return Sequence(
 				TestNot(Keyword()),
 				Sequence(Char(), ZeroOrMore(FirstOf(Char(), Digit(), "_"))),
-				push(new VarExpr(match()))
+				push(ExprFactory.var(match()))
 				);
 	}
 }
@@ -26,13 +26,11 @@
 
 package ece351.f.rdescent;
 
-import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.Constants;
 import ece351.common.ast.Expr;
-import ece351.common.ast.NotExpr;
-import ece351.common.ast.OrExpr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.VarExpr;
 import ece351.f.ast.FProgram;
 import ece351.util.CommandLine;
@@ -93,7 +91,7 @@ public final class FRecursiveDescentParser implements Constants {
     	Expr expr = term();
     	while (lexer.inspect("or")) {
     		lexer.consume("or");
-    		expr = new OrExpr(expr, term());
+    		expr = ExprFactory.or(expr, term());
     	}
     	return expr;
     }
@@ -102,7 +100,7 @@ public final class FRecursiveDescentParser implements Constants {
     	Expr term = factor();
     	while (lexer.inspect("and")) {
     		lexer.consume("and");
-    		term = new AndExpr(term, factor());
+    		term = ExprFactory.and(term, factor());
     	}
     	return term;
     }
@@ -110,7 +108,7 @@ public final class FRecursiveDescentParser implements Constants {
     Expr factor() {
     	if (lexer.inspect("not")) {
 			lexer.consume("not");
-			return new NotExpr(factor());
+			return ExprFactory.not(factor());
 		} else if (lexer.inspect("(")) {
 			lexer.consume("(");
 			Expr expr = expr();
@@ -125,7 +123,7 @@ public final class FRecursiveDescentParser implements Constants {
     
     VarExpr var() {
     	if (lexer.inspectID()) {
-			return new VarExpr(lexer.consumeID());
+			return ExprFactory.var(lexer.consumeID());
 		} else {
 			throw new IllegalArgumentException();
 		}
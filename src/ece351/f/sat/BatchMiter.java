@@ -0,0 +1,126 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.Expr;
+import ece351.common.ast.TruthTable;
+
+/**
+ * Miters for many pairs of formulas, solved one after another in a 
+ * single SatSolver.
+ * 
+ * All pairs share one Tseitin encoding, so inputs with the same name 
+ * share a variable, and a subterm that occurs in several pairs is 
+ * encoded once. The miter of each pair is guarded by a fresh activation
+ * literal, which is assumed when that pair is solved and then set false
+ * for good. The clauses that the solver learns about the shared gates 
+ * stay valid, so later pairs get them for free. Equivalent subterms
+ * are merged by a Sweeper before each miter is built.
+ * 
+ * Not thread-safe.
+ * 
+ * @see Miter
+ */
+public final class BatchMiter {
+
+	private final Tseitin encoder = new Tseitin(new SatSolver());
+	private final Sweeper sweeper = new Sweeper(encoder);
+	private int checked = 0;
+
+	/**
+	 * Check whether each pair of formulas computes the same function.
+	 * The lists must be the same length; left.get(i) is compared with
+	 * right.get(i).
+	 * @return values of the inputs of these formulas on which some pair
+	 * differs, or null if every pair is equivalent
+	 */
+	public Map<String,Boolean> check(final List<AssignmentStatement> left, final List<AssignmentStatement> right) {
+		assert left.size() == right.size();
+		checked++;
+		final List<Expr> roots = new ArrayList<Expr>(2 * left.size());
+		for (final AssignmentStatement a : left) roots.add(a.expr);
+		for (final AssignmentStatement a : right) roots.add(a.expr);
+		sweeper.sweep(roots);
+		final int activation = encoder.solver.newVar();
+		final int[] clause = new int[left.size() + 1];
+		int n = 0;
+		clause[n++] = -activation;
+		for (int i = 0; i < left.size(); i++) {
+			final int d = encoder.xor(encoder.encode(left.get(i).expr), encoder.encode(right.get(i).expr));
+			if (d != encoder.falseLit) {
+				clause[n++] = d;
+			}
+		}
+		if (n == 1) {
+			// every pair encodes to the same literal
+			return null;
+		}
+		encoder.solver.addClause(Arrays.copyOf(clause, n));
+		final boolean differ = encoder.solver.solve(activation);
+		final Map<String,Boolean> counterexample = differ ? counterexample(left, right) : null;
+		// retire this miter
+		encoder.solver.addClause(-activation);
+		return counterexample;
+	}
+
+	private Map<String,Boolean> counterexample(final List<AssignmentStatement> left, final List<AssignmentStatement> right) {
+		// only the inputs of these formulas, not those of earlier pairs
+		final Map<String,Integer> names = new LinkedHashMap<String,Integer>();
+		for (final AssignmentStatement a : left) TruthTable.index(a.expr, names, Integer.MAX_VALUE);
+		for (final AssignmentStatement a : right) TruthTable.index(a.expr, names, Integer.MAX_VALUE);
+		final Map<String,Boolean> result = new TreeMap<String,Boolean>();
+		for (final String name : names.keySet()) {
+			result.put(name, encoder.solver.modelValue(encoder.input(name)));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/** Number of calls to check() so far. */
+	public int checked() {
+		return checked;
+	}
+
+	/** The sweeper, for statistics. */
+	public Sweeper sweeper() {
+		return sweeper;
+	}
+
+	/** The solver, for statistics. */
+	public SatSolver solver() {
+		return encoder.solver;
+	}
+}
@@ -0,0 +1,367 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ece351.common.ast.AssignmentStatement;
+
+/**
+ * Remembers the answers to equivalence queries, by a content hash of 
+ * the two programs, so that a query repeated later, or in another run,
+ * does not need simulation or SAT again.
+ * 
+ * The key is the SHA-256 of the formulas of both programs in a 
+ * canonical order: sorted by output variable, and with the two sides
+ * of each output sorted, so that swapping the programs or reordering
+ * their formulas gives the same key.
+ * 
+ * Only the recently used answers are kept in memory, in an LRU. If the
+ * cache has a file, every new answer is also appended to it, one line 
+ * per answer, and an answer that is not in the LRU is looked up on 
+ * disk. The index is a hash table in a second file, named like the log
+ * with ".idx" appended, which is memory-mapped: each slot holds a hash
+ * of a key and the offset of its line in the log, and the line is read
+ * to confirm the key. The index records how much of the log it covers,
+ * and the rest of the log is indexed when the cache is opened, so a 
+ * missing or stale index is rebuilt. A truncated last line, from a 
+ * crash, is ignored.
+ * 
+ * Thread-safe.
+ */
+public final class EquivalenceCache implements Closeable {
+
+	/** The index header: the length of the log it covers, and its number of entries. */
+	private static final int HEADER = 16;
+	/** An index slot: the hash of a key, and the offset of its line plus one, or zero if empty. */
+	private static final int SLOT = 16;
+	private static final int INITIAL_SLOTS = 1024;
+
+	private final Map<String,Boolean> recent;
+	private final File file;
+	private final File indexFile;
+	/** Open while the file is in use; reopened after close(), if need be. */
+	private RandomAccessFile log;
+	private MappedByteBuffer index;
+	private int slots;
+	/** The length of the log. */
+	private long length;
+	/** Whether the file ends in a truncated line, which the next append must end. */
+	private boolean truncated = false;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/** An in-memory cache of the given number of answers. */
+	public EquivalenceCache(final int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * A cache backed by a file, which is created if it does not exist.
+	 * At most capacity answers are kept in memory.
+	 */
+	public EquivalenceCache(final int capacity, final File file) {
+		this.recent = new LinkedHashMap<String,Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String,Boolean> eldest) {
+				return size() > capacity;
+			}
+		};
+		this.file = file;
+		this.indexFile = file == null ? null : new File(file.getPath() + ".idx");
+		if (file != null) {
+			open();
+		}
+	}
+
+	private void open() {
+		try {
+			log = new RandomAccessFile(file, "rw");
+			length = log.length();
+			final long size = indexFile.length();
+			final long n = (size - HEADER) / SLOT;
+			final boolean usable = size > HEADER && (size - HEADER) % SLOT == 0 
+					&& n <= Integer.MAX_VALUE && Long.bitCount(n) == 1;
+			if (usable) {
+				slots = (int) n;
+				index = map(indexFile, size);
+			}
+			if (!usable || index.getLong(0) > length) {
+				// missing, damaged, or for another log
+				slots = INITIAL_SLOTS;
+				Files.deleteIfExists(indexFile.toPath());
+				index = map(indexFile, HEADER + (long) SLOT * slots);
+			}
+			scan();
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static MappedByteBuffer map(final File f, final long size) throws IOException {
+		try (final FileChannel c = FileChannel.open(f.toPath(), 
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return c.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	/** Index the lines of the log that the index does not cover yet. */
+	private void scan() throws IOException {
+		long covered = index.getLong(0);
+		try (final FileInputStream f = new FileInputStream(file);
+				final InputStream in = new BufferedInputStream(f)) {
+			f.getChannel().position(covered);
+			final StringBuilder line = new StringBuilder();
+			long offset = covered;
+			int b;
+			while ((b = in.read()) >= 0) {
+				offset++;
+				if (b == '\n') {
+					final String key = keyOf(line);
+					if (key != null && find(key) == null) {
+						insert(key, covered);
+					}
+					covered = offset;
+					line.setLength(0);
+				} else {
+					line.append((char) b);
+				}
+			}
+		}
+		index.putLong(0, covered);
+		truncated = covered < length;
+	}
+
+	/** The key of a line "<key> <0|1>", or null if it is not such a line. */
+	private static String keyOf(final CharSequence line) {
+		final int n = line.length();
+		if (n < 3 || line.charAt(n - 2) != ' ' || (line.charAt(n - 1) != '0' && line.charAt(n - 1) != '1')) {
+			return null;
+		}
+		final String key = line.subSequence(0, n - 2).toString();
+		return key.indexOf(' ') < 0 ? key : null;
+	}
+
+	/** 64-bit FNV-1a. */
+	private static long hash(final String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	private static int position(final int slot) {
+		return HEADER + SLOT * slot;
+	}
+
+	/** The answer for key in the log, or null. */
+	private Boolean find(final String key) throws IOException {
+		final long h = hash(key);
+		for (int i = (int) h & (slots - 1); ; i = (i + 1) & (slots - 1)) {
+			final long offset = index.getLong(position(i) + 8);
+			if (offset == 0) {
+				return null;
+			}
+			if (index.getLong(position(i)) == h) {
+				log.seek(offset - 1);
+				final String line = log.readLine();
+				if (line != null && key.equals(keyOf(line))) {
+					return line.charAt(line.length() - 1) == '1';
+				}
+			}
+		}
+	}
+
+	private void insert(final String key, final long offset) throws IOException {
+		final long count = index.getLong(8);
+		if (2 * (count + 1) > slots) {
+			grow();
+		}
+		place(index, slots, hash(key), offset + 1);
+		index.putLong(8, count + 1);
+	}
+
+	private static void place(final MappedByteBuffer index, final int slots, final long h, final long offset) {
+		int i = (int) h & (slots - 1);
+		while (index.getLong(position(i) + 8) != 0) {
+			i = (i + 1) & (slots - 1);
+		}
+		index.putLong(position(i), h);
+		index.putLong(position(i) + 8, offset);
+	}
+
+	/** Rehash into a table twice the size, which replaces the index file. */
+	private void grow() throws IOException {
+		if (slots > (Integer.MAX_VALUE - HEADER) / SLOT / 2) {
+			throw new RuntimeException("equivalence cache index is full: " + indexFile);
+		}
+		final int bigger = 2 * slots;
+		final File tmp = new File(indexFile.getPath() + ".tmp");
+		Files.deleteIfExists(tmp.toPath());
+		final MappedByteBuffer fresh = map(tmp, HEADER + (long) SLOT * bigger);
+		fresh.putLong(0, index.getLong(0));
+		fresh.putLong(8, index.getLong(8));
+		for (int i = 0; i < slots; i++) {
+			final long offset = index.getLong(position(i) + 8);
+			if (offset != 0) {
+				place(fresh, bigger, index.getLong(position(i)), offset);
+			}
+		}
+		fresh.force();
+		Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		index = fresh;
+		slots = bigger;
+	}
+
+	/**
+	 * The key for the question whether the formulas of left are 
+	 * equivalent to the formulas of right, pairwise.
+	 */
+	public static String key(final List<AssignmentStatement> left, final List<AssignmentStatement> right) {
+		if (left.size() != right.size()) {
+			throw new IllegalArgumentException("lists of " + left.size() + " and " + right.size() + " formulas");
+		}
+		final List<String> pairs = new ArrayList<String>(left.size());
+		for (int i = 0; i < left.size(); i++) {
+			final String a = left.get(i).toString();
+			final String b = right.get(i).toString();
+			pairs.add(a.compareTo(b) <= 0 ? a + '\u0000' + b : b + '\u0000' + a);
+		}
+		Collections.sort(pairs);
+		try {
+			final MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			for (final String p : pairs) {
+				sha.update(p.getBytes(StandardCharsets.UTF_8));
+				sha.update((byte) '\n');
+			}
+			final StringBuilder b = new StringBuilder(64);
+			for (final byte x : sha.digest()) {
+				b.append(Character.forDigit((x >> 4) & 0xF, 16));
+				b.append(Character.forDigit(x & 0xF, 16));
+			}
+			return b.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * The remembered answer, or null.
+	 */
+	public synchronized Boolean get(final String key) {
+		Boolean answer = recent.get(key);
+		if (answer == null && file != null) {
+			try {
+				if (log == null) {
+					open();
+				}
+				answer = find(key);
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+			if (answer != null) {
+				recent.put(key, answer);
+			}
+		}
+		if (answer == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return answer;
+	}
+
+	public synchronized void put(final String key, final boolean equivalent) {
+		recent.put(key, equivalent);
+		if (file != null) {
+			try {
+				if (log == null) {
+					open();
+				}
+				if (find(key) != null) {
+					return;
+				}
+				log.seek(length);
+				if (truncated) {
+					log.write('\n');
+					length++;
+					truncated = false;
+				}
+				final byte[] line = (key + ' ' + (equivalent ? '1' : '0') + '\n').getBytes(StandardCharsets.US_ASCII);
+				log.write(line);
+				// the log first, so that a crash leaves at worst an unindexed line
+				insert(key, length);
+				length += line.length;
+				index.putLong(0, length);
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/** Close the files. The cache reopens them if it is used again. */
+	@Override
+	public synchronized void close() throws IOException {
+		if (log != null) {
+			index.force();
+			index = null;
+			log.close();
+			log = null;
+		}
+	}
+
+	public synchronized long hits() { return hits; }
+	public synchronized long misses() { return misses; }
+
+	/** Number of answers in memory. */
+	public synchronized int size() {
+		return recent.size();
+	}
+}
@@ -0,0 +1,419 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.Expr;
+import ece351.common.ast.TruthTable;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.WordEvaluator;
+import ece351.f.ast.FProgram;
+import ece351.util.PersistentVector;
+
+/**
+ * Decides whether two FPrograms are equivalent by trying the cheap 
+ * checks first:
+ * 
+ * IDENTITY: the same object.
+ * STRUCTURE: different output variables, or every output is computed by
+ *   equal or isomorphic expressions. Outputs that are structurally equal
+ *   are left out of the remaining tiers.
+ * CACHE: the same question was answered before. See EquivalenceCache.
+ * SIMULATION: the programs differ on some random input. Each word 
+ *   operation evaluates 64 inputs, so a few thousand inputs cost little.
+ * TRUTH_TABLE: with at most TRUTH_TABLE_VARS inputs, every input is 
+ *   tried, 64 at a time. With more, each output is checked on its own,
+ *   by truth table if its cone has few enough inputs ...
+ * SAT: ... and otherwise by giving its miter to the SAT solver, after
+ *   merging its equivalent subterms (see Sweeper).
+ * 
+ * checkAll() checks many pairs with one SAT solver. See BatchMiter.
+ * 
+ * Each Result records the tier that decided it. The checker also keeps
+ * a tally per tier, for report(). Thread-safe.
+ */
+public final class EquivalenceChecker {
+
+	public enum Tier { IDENTITY, STRUCTURE, CACHE, SIMULATION, TRUTH_TABLE, SAT }
+
+	public static final class Result {
+		public final boolean equivalent;
+		public final Tier tier;
+		/** Input values on which the programs differ, or null. */
+		public final Map<String,Boolean> counterexample;
+		public final long nanos;
+
+		Result(final boolean equivalent, final Tier tier, final Map<String,Boolean> counterexample, final long nanos) {
+			this.equivalent = equivalent;
+			this.tier = tier;
+			this.counterexample = counterexample;
+			this.nanos = nanos;
+		}
+
+		@Override
+		public String toString() {
+			return (equivalent ? "equivalent" : "not equivalent") + " by " + tier 
+					+ (counterexample == null ? "" : " on " + counterexample);
+		}
+	}
+
+	/** Largest number of inputs for which every input is tried. */
+	public static final int TRUTH_TABLE_VARS = 20;
+
+	/** Number of words of random inputs to simulate: 64 inputs each. */
+	public static final int SIMULATION_WORDS = 64;
+
+	/** Number of answers the cache of the GLOBAL checker keeps in memory. */
+	public static final int CACHE_CAPACITY = 1 << 16;
+
+	/**
+	 * The checker that FProgram.equivalent() uses. Its answers persist in
+	 * the file named by the system property ece351.equivalence.cache, 
+	 * if there is one.
+	 */
+	public static final EquivalenceChecker GLOBAL = new EquivalenceChecker(globalCache());
+
+	private static EquivalenceCache globalCache() {
+		final String path = System.getProperty("ece351.equivalence.cache");
+		return new EquivalenceCache(CACHE_CAPACITY, path == null ? null : new File(path));
+	}
+
+	/** Remembered answers, or null. */
+	private final EquivalenceCache cache;
+
+	/** Where to check the cones of the outputs concurrently, or null to check them in turn. */
+	private final Executor cones;
+
+	/** A checker without a cache. */
+	public EquivalenceChecker() {
+		this(null);
+	}
+
+	public EquivalenceChecker(final EquivalenceCache cache) {
+		this(cache, true);
+	}
+
+	/**
+	 * @param parallel whether to check the cones of the outputs 
+	 *        concurrently, on the common fork-join pool
+	 */
+	public EquivalenceChecker(final EquivalenceCache cache, final boolean parallel) {
+		this(cache, parallel ? ForkJoinPool.commonPool() : null);
+	}
+
+	/**
+	 * @param cones where to check the cones of the outputs concurrently,
+	 *        or null to check them one after another. It must not be the
+	 *        bounded pool that calls check(), which could then wait on 
+	 *        itself.
+	 */
+	public EquivalenceChecker(final EquivalenceCache cache, final Executor cones) {
+		this.cache = cache;
+		this.cones = cones;
+	}
+
+	private final AtomicLongArray decided = new AtomicLongArray(Tier.values().length);
+	private final AtomicLongArray nanos = new AtomicLongArray(Tier.values().length);
+
+	public Result check(final FProgram fp1, final FProgram fp2) {
+		return check(fp1, fp2, null);
+	}
+
+	/**
+	 * Check many pairs in one session: left.get(i) against right.get(i).
+	 * The pairs that need the SAT solver share a BatchMiter, so common 
+	 * subformulas are encoded once and what the solver learns about 
+	 * them carries over from pair to pair. The pairs are checked one 
+	 * after another.
+	 * @return a Result for each pair, in order
+	 */
+	public List<Result> checkAll(final List<FProgram> left, final List<FProgram> right) {
+		if (left.size() != right.size()) {
+			throw new IllegalArgumentException("unequal numbers of programs: " + left.size() + " and " + right.size());
+		}
+		final BatchMiter batch = new BatchMiter();
+		final List<Result> results = new ArrayList<Result>(left.size());
+		for (int i = 0; i < left.size(); i++) {
+			results.add(check(left.get(i), right.get(i), batch));
+		}
+		return results;
+	}
+
+	private Result check(final FProgram fp1, final FProgram fp2, final BatchMiter batch) {
+		final long start = System.nanoTime();
+		final Result r = decide(fp1, fp2, batch, start);
+		decided.incrementAndGet(r.tier.ordinal());
+		nanos.addAndGet(r.tier.ordinal(), r.nanos);
+		return r;
+	}
+
+	private static Result result(final boolean equivalent, final Tier tier, final Map<String,Boolean> counterexample, final long start) {
+		return new Result(equivalent, tier, counterexample, System.nanoTime() - start);
+	}
+
+	private Result decide(final FProgram fp1, final FProgram fp2, final BatchMiter batch, final long start) {
+		if (fp1 == fp2) {
+			return result(true, Tier.IDENTITY, null, start);
+		}
+
+		// pair up the outputs, dropping the structurally equal ones
+		if (fp1.formulas.size() != fp2.formulas.size()) {
+			return result(false, Tier.STRUCTURE, null, start);
+		}
+		final Map<VarExpr,AssignmentStatement> others = new HashMap<VarExpr,AssignmentStatement>();
+		for (final AssignmentStatement a : fp2.formulas) {
+			others.put(a.outputVar, a);
+		}
+		final List<AssignmentStatement> left = new ArrayList<AssignmentStatement>();
+		final List<AssignmentStatement> right = new ArrayList<AssignmentStatement>();
+		for (final AssignmentStatement a1 : fp1.formulas) {
+			final AssignmentStatement a2 = others.get(a1.outputVar);
+			if (a2 == null) {
+				return result(false, Tier.STRUCTURE, null, start);
+			}
+			if (!a1.expr.equals(a2.expr) && !a1.expr.isomorphic(a2.expr)) {
+				left.add(a1);
+				right.add(a2);
+			}
+		}
+		if (left.isEmpty()) {
+			return result(true, Tier.STRUCTURE, null, start);
+		}
+
+		// asked before?
+		if (cache == null) {
+			return decideSemantically(left, right, batch, start);
+		}
+		final String key = EquivalenceCache.key(left, right);
+		final Boolean known = cache.get(key);
+		if (known != null) {
+			return result(known, Tier.CACHE, null, start);
+		}
+		final Result r = decideSemantically(left, right, batch, start);
+		cache.put(key, r.equivalent);
+		return r;
+	}
+
+	/**
+	 * Decide the pairs of formulas that are not structurally equal.
+	 */
+	private Result decideSemantically(final List<AssignmentStatement> left, final List<AssignmentStatement> right, 
+			final BatchMiter batch, final long start) {
+
+		// evaluate the remaining outputs of both programs together
+		final List<Expr> roots = new ArrayList<Expr>(2 * left.size());
+		for (final AssignmentStatement a : left) roots.add(a.expr);
+		for (final AssignmentStatement a : right) roots.add(a.expr);
+		final Map<String,Integer> inputs = new LinkedHashMap<String,Integer>();
+		final WordEvaluator evaluator = new WordEvaluator(roots, inputs);
+		final int n = inputs.size();
+		final long[] in = new long[n];
+		final long[] out = new long[roots.size()];
+		final boolean exhaustive = n <= TRUTH_TABLE_VARS;
+		final int exhaustiveWords = exhaustive ? (n <= 6 ? 1 : 1 << (n - 6)) : 0;
+
+		if (!exhaustive || exhaustiveWords > SIMULATION_WORDS) {
+			// random simulation, reproducibly
+			final Random random = new Random(351);
+			for (int w = 0; w < SIMULATION_WORDS; w++) {
+				for (int i = 0; i < n; i++) {
+					in[i] = random.nextLong();
+				}
+				final Map<String,Boolean> cex = compare(evaluator, inputs, in, out, -1L);
+				if (cex != null) {
+					return result(false, Tier.SIMULATION, cex, start);
+				}
+			}
+		}
+
+		if (exhaustive) {
+			final Map<String,Boolean> cex = exhaustive(evaluator, inputs, in, out);
+			return result(cex == null, Tier.TRUTH_TABLE, cex, start);
+		}
+
+		// too many inputs for one truth table: check the outputs one by one
+		return decideCones(left, right, batch, start);
+	}
+
+	/**
+	 * Check each output separately, concurrently if this checker has an
+	 * executor for cones, and stop at the first output that differs. The cone of
+	 * influence of an output is its expression, since every variable 
+	 * in an expression is an input. A cone usually has far fewer inputs
+	 * than the whole program, so many cones fit in a truth table, and 
+	 * the others make small miters.
+	 */
+	private Result decideCones(final List<AssignmentStatement> left, final List<AssignmentStatement> right, 
+			final BatchMiter batch, final long start) {
+		final AtomicBoolean refuted = new AtomicBoolean(false);
+		final List<Result> results = new ArrayList<Result>(left.size());
+		if (cones == null || batch != null) {
+			for (int i = 0; i < left.size() && !refuted.get(); i++) {
+				results.add(decideCone(left.get(i), right.get(i), batch, refuted, start));
+			}
+		} else {
+			final List<CompletableFuture<Result>> futures = new ArrayList<CompletableFuture<Result>>(left.size());
+			for (int i = 0; i < left.size(); i++) {
+				final AssignmentStatement a1 = left.get(i);
+				final AssignmentStatement a2 = right.get(i);
+				futures.add(CompletableFuture.supplyAsync(
+						() -> refuted.get() ? null : decideCone(a1, a2, batch, refuted, start), cones));
+			}
+			for (final CompletableFuture<Result> f : futures) {
+				try {
+					results.add(f.join());
+				} catch (final CompletionException e) {
+					throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+				}
+			}
+		}
+		Tier tier = Tier.TRUTH_TABLE;
+		for (final Result r : results) {
+			if (r == null) {
+				// skipped: some other output differs
+				continue;
+			}
+			if (!r.equivalent) {
+				return result(false, r.tier, r.counterexample, start);
+			}
+			if (r.tier.compareTo(tier) > 0) {
+				tier = r.tier;
+			}
+		}
+		assert !refuted.get();
+		return result(true, tier, null, start);
+	}
+
+	private static Result decideCone(final AssignmentStatement a1, final AssignmentStatement a2, final BatchMiter batch,
+			final AtomicBoolean refuted, final long start) {
+		final Map<String,Integer> inputs = new LinkedHashMap<String,Integer>();
+		final Result r;
+		if (TruthTable.index(a1.expr, inputs, TRUTH_TABLE_VARS) && TruthTable.index(a2.expr, inputs, TRUTH_TABLE_VARS)) {
+			final WordEvaluator evaluator = new WordEvaluator(Arrays.asList(a1.expr, a2.expr), inputs);
+			final Map<String,Boolean> cex = exhaustive(evaluator, inputs, new long[inputs.size()], new long[2]);
+			r = result(cex == null, Tier.TRUTH_TABLE, cex, start);
+		} else if (batch != null) {
+			final Map<String,Boolean> cex = batch.check(Collections.singletonList(a1), Collections.singletonList(a2));
+			r = result(cex == null, Tier.SAT, cex, start);
+		} else {
+			final Miter miter = new Miter(new FProgram(PersistentVector.of(a1)), new FProgram(PersistentVector.of(a2)), true);
+			r = result(miter.equivalent(), Tier.SAT, miter.counterexample(), start);
+		}
+		if (!r.equivalent) {
+			refuted.set(true);
+		}
+		return r;
+	}
+
+	/**
+	 * Try every input, 64 at a time.
+	 * @return an input on which some pair of outputs differs, or null
+	 */
+	private static Map<String,Boolean> exhaustive(final WordEvaluator evaluator, final Map<String,Integer> inputs,
+			final long[] in, final long[] out) {
+		final int n = inputs.size();
+		final long used = n < 6 ? (1L << (1 << n)) - 1 : -1L;
+		final int words = n <= 6 ? 1 : 1 << (n - 6);
+		for (int w = 0; w < words; w++) {
+			for (int i = 0; i < n; i++) {
+				in[i] = TruthTable.variableWord(i, w);
+			}
+			final Map<String,Boolean> cex = compare(evaluator, inputs, in, out, used);
+			if (cex != null) {
+				return cex;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Evaluate one word of inputs.
+	 * @return the first input, among the used bits, on which some pair of
+	 * outputs differs; or null
+	 */
+	private static Map<String,Boolean> compare(final WordEvaluator evaluator, final Map<String,Integer> inputs,
+			final long[] in, final long[] out, final long used) {
+		evaluator.evaluate(in, out);
+		final int pairs = out.length / 2;
+		for (int k = 0; k < pairs; k++) {
+			final long d = (out[k] ^ out[k + pairs]) & used;
+			if (d != 0) {
+				final int bit = Long.numberOfTrailingZeros(d);
+				final Map<String,Boolean> cex = new TreeMap<String,Boolean>();
+				for (final Map.Entry<String,Integer> e : inputs.entrySet()) {
+					cex.put(e.getKey(), ((in[e.getValue()] >>> bit) & 1) != 0);
+				}
+				return Collections.unmodifiableMap(cex);
+			}
+		}
+		return null;
+	}
+
+	/** The cache, or null. */
+	public EquivalenceCache cache() {
+		return cache;
+	}
+
+	/** Number of queries decided by the tier. */
+	public long decided(final Tier tier) {
+		return decided.get(tier.ordinal());
+	}
+
+	/** Total time of the queries decided by the tier, in nanoseconds. */
+	public long nanos(final Tier tier) {
+		return nanos.get(tier.ordinal());
+	}
+
+	/**
+	 * A table of the number of queries decided by each tier.
+	 */
+	public String report() {
+		final StringBuilder b = new StringBuilder();
+		b.append(String.format("%-12s %10s %10s%n", "tier", "decided", "ms"));
+		for (final Tier t : Tier.values()) {
+			b.append(String.format("%-12s %10d %10.3f%n", t, decided(t), nanos(t) / 1e6));
+		}
+		return b.toString();
+	}
+}
@@ -0,0 +1,125 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ece351.f.ast.FProgram;
+import ece351.f.sat.EquivalenceChecker.Result;
+
+/**
+ * Checks many pairs of FPrograms for equivalence concurrently, on a 
+ * bounded pool of worker threads.
+ * 
+ * Each query builds its own evaluator, encoder and SatSolver, so the 
+ * workers share nothing but the EquivalenceChecker's tallies, which are
+ * atomic. The queue of waiting queries is bounded too: when it is full,
+ * the submitting thread runs the query itself, which slows submission 
+ * down to the pace of the workers. The checker should check the cones
+ * of the outputs in turn, or on an executor of its own: otherwise each
+ * query fans out onto the common fork-join pool, beyond the workers.
+ * 
+ * Close the service to stop its workers. Queries submitted after that
+ * fail with a RejectedExecutionException.
+ */
+public final class EquivalenceService implements AutoCloseable {
+
+	private final EquivalenceChecker checker;
+	private final ThreadPoolExecutor pool;
+
+	/** A service with one worker per core. */
+	public EquivalenceService() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/** The workers check the cones of each pair in turn: the pairs are what run concurrently. */
+	public EquivalenceService(final int workers) {
+		this(workers, new EquivalenceChecker(null, false));
+	}
+
+	public EquivalenceService(final int workers, final EquivalenceChecker checker) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("need at least one worker: " + workers);
+		}
+		this.checker = checker;
+		final AtomicInteger count = new AtomicInteger();
+		final ThreadFactory daemons = r -> {
+			final Thread t = new Thread(r, "equivalence-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+		// like CallerRunsPolicy, except that it does not silently drop the query once closed
+		final RejectedExecutionHandler callerRuns = (r, executor) -> {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("equivalence service is closed");
+			}
+			r.run();
+		};
+		this.pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<Runnable>(16 * workers), daemons, callerRuns);
+	}
+
+	/**
+	 * Check a pair in the background.
+	 * @return the result, with the tier that decided it; 
+	 *         failed with a RejectedExecutionException if the service is closed
+	 */
+	public CompletableFuture<Result> check(final FProgram fp1, final FProgram fp2) {
+		try {
+			return CompletableFuture.supplyAsync(() -> checker.check(fp1, fp2), pool);
+		} catch (final RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Check a pair in the background.
+	 */
+	public CompletableFuture<Boolean> equivalent(final FProgram fp1, final FProgram fp2) {
+		return check(fp1, fp2).thenApply(r -> r.equivalent);
+	}
+
+	/** The checker, for its tallies. */
+	public EquivalenceChecker checker() {
+		return checker;
+	}
+
+	/**
+	 * Stop accepting queries. Queries already submitted still complete.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+}
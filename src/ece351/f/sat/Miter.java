@@ -0,0 +1,129 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.Expr;
+import ece351.common.ast.VarExpr;
+import ece351.f.ast.FProgram;
+
+/**
+ * Equivalence check of two FPrograms with the same output variables.
+ * 
+ * Both programs are Tseitin-encoded into one SatSolver, over shared 
+ * input variables. For each output the miter has a gate that is true 
+ * when the two programs disagree on it. The programs are equivalent 
+ * if and only if no input makes any of these gates true, that is, if
+ * the clauses plus the disjunction of the difference gates are 
+ * unsatisfiable.
+ * 
+ * Outputs that encode to the same literal are equal by construction
+ * and are left out of the miter. With sweeping (see Sweeper), equivalent
+ * subterms are merged first, so that more outputs do.
+ */
+public final class Miter {
+
+	private final Tseitin encoder = new Tseitin(new SatSolver());
+	private final boolean equivalent;
+	private final Sweeper sweeper;
+
+	public Miter(final FProgram fp1, final FProgram fp2) {
+		this(fp1, fp2, false);
+	}
+
+	public Miter(final FProgram fp1, final FProgram fp2, final boolean sweep) {
+		if (sweep) {
+			final List<Expr> roots = new ArrayList<Expr>();
+			for (final AssignmentStatement a : fp1.formulas) roots.add(a.expr);
+			for (final AssignmentStatement a : fp2.formulas) roots.add(a.expr);
+			sweeper = new Sweeper(encoder);
+			sweeper.sweep(roots);
+		} else {
+			sweeper = null;
+		}
+		final Map<VarExpr,AssignmentStatement> others = new TreeMap<VarExpr,AssignmentStatement>();
+		for (final AssignmentStatement a : fp2.formulas) {
+			others.put(a.outputVar, a);
+		}
+		final List<Integer> differences = new ArrayList<Integer>();
+		for (final AssignmentStatement a1 : fp1.formulas) {
+			final AssignmentStatement a2 = others.get(a1.outputVar);
+			if (a2 == null) {
+				throw new IllegalArgumentException("no formula for " + a1.outputVar);
+			}
+			final int d = encoder.xor(encoder.encode(a1.expr), encoder.encode(a2.expr));
+			if (d != encoder.falseLit) {
+				differences.add(d);
+			}
+		}
+		if (differences.isEmpty()) {
+			equivalent = true;
+		} else {
+			final int[] clause = new int[differences.size()];
+			for (int i = 0; i < clause.length; i++) {
+				clause[i] = differences.get(i);
+			}
+			encoder.solver.addClause(clause);
+			equivalent = !encoder.solver.solve();
+		}
+	}
+
+	public boolean equivalent() {
+		return equivalent;
+	}
+
+	/**
+	 * Values of the input variables on which the programs differ,
+	 * or null if they are equivalent.
+	 */
+	public Map<String,Boolean> counterexample() {
+		if (equivalent) {
+			return null;
+		}
+		final Map<String,Boolean> result = new TreeMap<String,Boolean>();
+		for (final Map.Entry<String,Integer> e : encoder.inputs().entrySet()) {
+			result.put(e.getKey(), encoder.solver.modelValue(e.getValue()));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/** The sweeper, for statistics, or null if there was no sweeping. */
+	public Sweeper sweeper() {
+		return sweeper;
+	}
+
+	/** The solver, for statistics. */
+	public SatSolver solver() {
+		return encoder.solver;
+	}
+}
@@ -0,0 +1,630 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A conflict-driven clause-learning (CDCL) SAT solver, in the style of
+ * MiniSat: two watched literals per clause, first-UIP conflict analysis,
+ * VSIDS variable activities, phase saving, Luby restarts, and periodic
+ * deletion of inactive learnt clauses.
+ * 
+ * The interface uses DIMACS conventions: variables are numbered from 1,
+ * and a literal is a variable (positive) or its negation (negative).
+ * 
+ * Clauses may be added between calls to solve(), so the solver can be
+ * used incrementally. Assumptions passed to solve() hold for that call 
+ * only.
+ * 
+ * Not thread-safe.
+ * 
+ * @see http://minisat.se/downloads/MiniSat.pdf
+ */
+public final class SatSolver {
+
+	/** 
+	 * A clause. The first two literals are the watched ones.
+	 * In a reason clause the implied literal is lits[0].
+	 */
+	private static final class Clause {
+		final int[] lits;
+		final boolean learnt;
+		boolean deleted;
+		double activity;
+		Clause(final int[] lits, final boolean learnt) {
+			this.lits = lits;
+			this.learnt = learnt;
+		}
+	}
+
+	/** A growable array of clauses, used for the watch lists. */
+	private static final class ClauseList {
+		Clause[] data = new Clause[4];
+		int size;
+		void add(final Clause c) {
+			if (size == data.length) {
+				data = Arrays.copyOf(data, size * 2);
+			}
+			data[size++] = c;
+		}
+	}
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNASSIGNED = 0;
+
+	private static final double VAR_DECAY = 0.95;
+	private static final double CLAUSE_DECAY = 0.999;
+	private static final int RESTART_UNIT = 100;
+
+	// Internally literal 2v is variable v and literal 2v+1 is its negation.
+	private int vars = 0;
+	/** Value of each internal literal. */
+	private byte[] value = new byte[8];
+	/** Per variable. */
+	private int[] level = new int[4];
+	private Clause[] reason = new Clause[4];
+	private double[] activity = new double[4];
+	private boolean[] polarity = new boolean[4];
+	private boolean[] seen = new boolean[4];
+	private boolean[] model = new boolean[4];
+	/** Watch lists, per internal literal. */
+	private ClauseList[] watches = new ClauseList[8];
+
+	/** Assigned literals in chronological order. */
+	private int[] trail = new int[4];
+	private int trailSize = 0;
+	/** Start of each decision level on the trail. */
+	private int[] trailLim = new int[4];
+	private int decisionLevel = 0;
+	/** Next trail position to propagate. */
+	private int qhead = 0;
+
+	private final List<Clause> clauses = new ArrayList<Clause>();
+	private final List<Clause> learnts = new ArrayList<Clause>();
+
+	/** Priority queue of variables, by activity. */
+	private int[] heap = new int[4];
+	private int heapSize = 0;
+	/** Position of each variable in the heap, or -1. */
+	private int[] heapIndex = new int[4];
+
+	/** Number of learnt clauses to keep; grows over time. */
+	private double maxLearnts = 0;
+
+	private double varInc = 1;
+	private double clauseInc = 1;
+
+	/** False once the clauses are known to be unsatisfiable. */
+	private boolean ok = true;
+
+	// statistics
+	private long conflicts = 0;
+	private long decisions = 0;
+	private long propagations = 0;
+
+	/**
+	 * Make a new variable.
+	 * @return its number, starting from 1
+	 */
+	public int newVar() {
+		final int v = ++vars;
+		if (v >= level.length) {
+			final int n = level.length * 2;
+			value = Arrays.copyOf(value, 2 * n);
+			watches = Arrays.copyOf(watches, 2 * n);
+			level = Arrays.copyOf(level, n);
+			reason = Arrays.copyOf(reason, n);
+			activity = Arrays.copyOf(activity, n);
+			polarity = Arrays.copyOf(polarity, n);
+			seen = Arrays.copyOf(seen, n);
+			model = Arrays.copyOf(model, n);
+			trail = Arrays.copyOf(trail, n);
+			trailLim = Arrays.copyOf(trailLim, n);
+			heap = Arrays.copyOf(heap, n);
+			heapIndex = Arrays.copyOf(heapIndex, n);
+		}
+		watches[2 * v] = new ClauseList();
+		watches[2 * v + 1] = new ClauseList();
+		heapIndex[v] = -1;
+		heapInsert(v);
+		return v;
+	}
+
+	/** Number of variables made so far. */
+	public int vars() {
+		return vars;
+	}
+
+	/**
+	 * Add a clause: the disjunction of the given literals.
+	 * Must be called between calls to solve().
+	 * @return false if the clauses are now known to be unsatisfiable
+	 */
+	public boolean addClause(final int... dimacs) {
+		if (!ok) return false;
+		assert decisionLevel == 0;
+		final int[] lits = new int[dimacs.length];
+		for (int i = 0; i < lits.length; i++) {
+			lits[i] = internal(dimacs[i]);
+		}
+		// drop duplicates and false literals; skip satisfied clauses and tautologies
+		Arrays.sort(lits);
+		int n = 0;
+		int previous = -1;
+		for (final int p : lits) {
+			if (value[p] == TRUE || p == (previous ^ 1)) {
+				return true;
+			}
+			if (value[p] != FALSE && p != previous) {
+				lits[n++] = p;
+				previous = p;
+			}
+		}
+		if (n == 0) {
+			ok = false;
+		} else if (n == 1) {
+			enqueue(lits[0], null);
+			ok = propagate() == null;
+		} else {
+			final Clause c = new Clause(Arrays.copyOf(lits, n), false);
+			clauses.add(c);
+			attach(c);
+		}
+		return ok;
+	}
+
+	/**
+	 * Decide whether the clauses are satisfiable, assuming that the 
+	 * given literals are true. If they are, modelValue() returns the
+	 * satisfying assignment.
+	 */
+	public boolean solve(final int... assumptions) {
+		if (!ok) return false;
+		final int[] assume = new int[assumptions.length];
+		for (int i = 0; i < assume.length; i++) {
+			assume[i] = internal(assumptions[i]);
+		}
+		maxLearnts = Math.max(maxLearnts, Math.max(clauses.size() / 3.0, 1000));
+		int restarts = 0;
+		try {
+			while (true) {
+				final long budget = luby(restarts++) * RESTART_UNIT;
+				final byte result = search(budget, assume);
+				if (result != UNASSIGNED) {
+					return result == TRUE;
+				}
+			}
+		} finally {
+			backtrack(0);
+		}
+	}
+
+	/**
+	 * The value of a variable in the assignment found by the last 
+	 * successful call to solve().
+	 */
+	public boolean modelValue(final int var) {
+		assert var > 0 && var <= vars;
+		return model[var];
+	}
+
+	public long conflicts() { return conflicts; }
+	public long decisions() { return decisions; }
+	public long propagations() { return propagations; }
+	public int clauses() { return clauses.size(); }
+
+	/**
+	 * Search until a result or until the conflict budget runs out.
+	 * @return TRUE if satisfiable, FALSE if not, UNASSIGNED to restart
+	 */
+	private byte search(final long budget, final int[] assume) {
+		long conflictsHere = 0;
+		while (true) {
+			final Clause conflict = propagate();
+			if (conflict != null) {
+				conflicts++;
+				conflictsHere++;
+				if (decisionLevel == 0) {
+					ok = false;
+					return FALSE;
+				}
+				final int[] learnt = analyze(conflict);
+				backtrack(learnt.length == 1 ? 0 : level[learnt[1] >> 1]);
+				if (learnt.length == 1) {
+					enqueue(learnt[0], null);
+				} else {
+					final Clause c = new Clause(learnt, true);
+					learnts.add(c);
+					attach(c);
+					bumpClause(c);
+					enqueue(learnt[0], c);
+				}
+				varInc /= VAR_DECAY;
+				clauseInc /= CLAUSE_DECAY;
+			} else {
+				if (conflictsHere >= budget) {
+					backtrack(0);
+					return UNASSIGNED;
+				}
+				if (learnts.size() - trailSize >= maxLearnts) {
+					reduceLearnts();
+					maxLearnts *= 1.1;
+				}
+				int next = -1;
+				while (decisionLevel < assume.length) {
+					// next assumption
+					final int p = assume[decisionLevel];
+					if (value[p] == TRUE) {
+						newDecisionLevel();
+					} else if (value[p] == FALSE) {
+						return FALSE;
+					} else {
+						next = p;
+						break;
+					}
+				}
+				if (next == -1) {
+					final int v = pickBranchVar();
+					if (v == 0) {
+						// every variable is assigned without conflict
+						for (int i = 1; i <= vars; i++) {
+							model[i] = value[2 * i] == TRUE;
+						}
+						return TRUE;
+					}
+					decisions++;
+					next = polarity[v] ? 2 * v : 2 * v + 1;
+				}
+				newDecisionLevel();
+				enqueue(next, null);
+			}
+		}
+	}
+
+	private static int internal(final int dimacs) {
+		assert dimacs != 0;
+		return dimacs > 0 ? 2 * dimacs : -2 * dimacs + 1;
+	}
+
+	private void attach(final Clause c) {
+		watches[c.lits[0]].add(c);
+		watches[c.lits[1]].add(c);
+	}
+
+	private void enqueue(final int p, final Clause from) {
+		assert value[p] == UNASSIGNED;
+		value[p] = TRUE;
+		value[p ^ 1] = FALSE;
+		final int v = p >> 1;
+		level[v] = decisionLevel;
+		reason[v] = from;
+		trail[trailSize++] = p;
+	}
+
+	private void newDecisionLevel() {
+		trailLim[decisionLevel++] = trailSize;
+	}
+
+	/**
+	 * Unit propagation with two watched literals.
+	 * @return a conflicting clause, or null
+	 */
+	private Clause propagate() {
+		while (qhead < trailSize) {
+			final int p = trail[qhead++];
+			final int falseLit = p ^ 1;
+			final ClauseList ws = watches[falseLit];
+			final Clause[] data = ws.data;
+			final int n = ws.size;
+			int i = 0;
+			int j = 0;
+			propagations++;
+			while (i < n) {
+				final Clause c = data[i++];
+				if (c.deleted) {
+					continue;
+				}
+				final int[] lits = c.lits;
+				// make sure the false literal is lits[1]
+				if (lits[0] == falseLit) {
+					lits[0] = lits[1];
+					lits[1] = falseLit;
+				}
+				// already satisfied by the other watch?
+				if (value[lits[0]] == TRUE) {
+					data[j++] = c;
+					continue;
+				}
+				// look for a new literal to watch
+				boolean moved = false;
+				for (int k = 2; k < lits.length; k++) {
+					if (value[lits[k]] != FALSE) {
+						lits[1] = lits[k];
+						lits[k] = falseLit;
+						watches[lits[1]].add(c);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) {
+					continue;
+				}
+				// the clause is unit or conflicting
+				data[j++] = c;
+				if (value[lits[0]] == FALSE) {
+					while (i < n) {
+						data[j++] = data[i++];
+					}
+					ws.size = j;
+					qhead = trailSize;
+					return c;
+				}
+				enqueue(lits[0], c);
+			}
+			ws.size = j;
+		}
+		return null;
+	}
+
+	/**
+	 * First-UIP conflict analysis.
+	 * @return the learnt clause: the asserting literal first, then the
+	 * literal with the highest decision level among the others
+	 */
+	private int[] analyze(Clause conflict) {
+		// at most one literal per variable
+		final int[] learnt = new int[vars + 1];
+		int size = 1;
+		int pathCount = 0;
+		int p = -1;
+		int index = trailSize - 1;
+		do {
+			if (conflict.learnt) {
+				bumpClause(conflict);
+			}
+			final int[] lits = conflict.lits;
+			for (int k = (p == -1 ? 0 : 1); k < lits.length; k++) {
+				final int q = lits[k];
+				final int v = q >> 1;
+				if (!seen[v] && level[v] > 0) {
+					bumpVar(v);
+					seen[v] = true;
+					if (level[v] >= decisionLevel) {
+						pathCount++;
+					} else {
+						learnt[size++] = q;
+					}
+				}
+			}
+			// next literal on the trail to look at
+			while (!seen[trail[index--] >> 1]);
+			p = trail[index + 1];
+			conflict = reason[p >> 1];
+			seen[p >> 1] = false;
+			pathCount--;
+		} while (pathCount > 0);
+		learnt[0] = p ^ 1;
+
+		// drop the literals implied by the others
+		final int[] kept = new int[size];
+		kept[0] = learnt[0];
+		int n = 1;
+		for (int k = 1; k < size; k++) {
+			final Clause r = reason[learnt[k] >> 1];
+			if (r == null || !redundant(r)) {
+				kept[n++] = learnt[k];
+			}
+		}
+		for (int k = 1; k < size; k++) {
+			seen[learnt[k] >> 1] = false;
+		}
+
+		final int[] result = Arrays.copyOf(kept, n);
+		int max = 1;
+		for (int k = 2; k < result.length; k++) {
+			if (level[result[k] >> 1] > level[result[max] >> 1]) {
+				max = k;
+			}
+		}
+		if (result.length > 1) {
+			// watch the literal that will be unassigned last
+			final int t = result[1];
+			result[1] = result[max];
+			result[max] = t;
+		}
+		return result;
+	}
+
+	/**
+	 * Whether every literal of the reason, other than the implied one,
+	 * is already in the learnt clause or fixed at level 0.
+	 */
+	private boolean redundant(final Clause r) {
+		final int[] lits = r.lits;
+		for (int k = 1; k < lits.length; k++) {
+			final int v = lits[k] >> 1;
+			if (!seen[v] && level[v] > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void backtrack(final int target) {
+		if (decisionLevel <= target) return;
+		for (int k = trailSize - 1; k >= trailLim[target]; k--) {
+			final int p = trail[k];
+			final int v = p >> 1;
+			value[p] = UNASSIGNED;
+			value[p ^ 1] = UNASSIGNED;
+			reason[v] = null;
+			// phase saving
+			polarity[v] = (p & 1) == 0;
+			if (heapIndex[v] < 0) {
+				heapInsert(v);
+			}
+		}
+		trailSize = trailLim[target];
+		qhead = trailSize;
+		decisionLevel = target;
+	}
+
+	private int pickBranchVar() {
+		while (heapSize > 0) {
+			final int v = heapRemoveMax();
+			if (value[2 * v] == UNASSIGNED) {
+				return v;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Delete the less active half of the learnt clauses,
+	 * except binary ones and the reasons of current assignments.
+	 */
+	private void reduceLearnts() {
+		Collections.sort(learnts, new Comparator<Clause>() {
+			@Override
+			public int compare(final Clause a, final Clause b) {
+				return Double.compare(a.activity, b.activity);
+			}
+		});
+		final int half = learnts.size() / 2;
+		int j = 0;
+		for (int i = 0; i < learnts.size(); i++) {
+			final Clause c = learnts.get(i);
+			if (i < half && c.lits.length > 2 && !locked(c)) {
+				c.deleted = true;
+			} else {
+				learnts.set(j++, c);
+			}
+		}
+		learnts.subList(j, learnts.size()).clear();
+	}
+
+	private boolean locked(final Clause c) {
+		final int p = c.lits[0];
+		return value[p] == TRUE && reason[p >> 1] == c;
+	}
+
+	private void bumpVar(final int v) {
+		activity[v] += varInc;
+		if (activity[v] > 1e100) {
+			for (int i = 1; i <= vars; i++) {
+				activity[i] *= 1e-100;
+			}
+			varInc *= 1e-100;
+		}
+		if (heapIndex[v] >= 0) {
+			heapUp(heapIndex[v]);
+		}
+	}
+
+	private void bumpClause(final Clause c) {
+		c.activity += clauseInc;
+		if (c.activity > 1e20) {
+			for (final Clause l : learnts) {
+				l.activity *= 1e-20;
+			}
+			clauseInc *= 1e-20;
+		}
+	}
+
+	/** Luby sequence: 1 1 2 1 1 2 4 1 1 2 1 1 2 4 8 ... */
+	static long luby(final int i) {
+		int size = 1;
+		int seq = 0;
+		while (size < i + 1) {
+			seq++;
+			size = 2 * size + 1;
+		}
+		int x = i;
+		while (size - 1 != x) {
+			size = (size - 1) >> 1;
+			seq--;
+			x = x % size;
+		}
+		return 1L << seq;
+	}
+
+	// binary max-heap of variables, ordered by activity
+
+	private void heapInsert(final int v) {
+		heap[heapSize] = v;
+		heapIndex[v] = heapSize;
+		heapUp(heapSize++);
+	}
+
+	private int heapRemoveMax() {
+		final int v = heap[0];
+		heapIndex[v] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			heapDown(0);
+		}
+		return v;
+	}
+
+	private void heapUp(int i) {
+		final int v = heap[i];
+		while (i > 0) {
+			final int parent = (i - 1) >> 1;
+			if (activity[heap[parent]] >= activity[v]) break;
+			heap[i] = heap[parent];
+			heapIndex[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+
+	private void heapDown(int i) {
+		final int v = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) break;
+			if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+				child++;
+			}
+			if (activity[heap[child]] <= activity[v]) break;
+			heap[i] = heap[child];
+			heapIndex[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+}
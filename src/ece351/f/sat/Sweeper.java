@@ -0,0 +1,216 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import ece351.common.ast.BinaryExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NaryExpr;
+import ece351.common.ast.UnaryExpr;
+import ece351.common.ast.WordEvaluator;
+
+/**
+ * SAT sweeping, also known as fraiging: finds the subterms that are
+ * equivalent, or complementary, and merges them in the encoding before
+ * the miter is built.
+ * 
+ * Every subterm is simulated on SIMULATION_WORDS words of random input.
+ * Subterms with the same values, or complementary values, are 
+ * candidates. Children come before parents, so each subterm is 
+ * encoded after its children have been merged. Then a small SAT call,
+ * on the XOR of its literal and a candidate's literal, either proves 
+ * them equal, and the subterm takes the candidate's literal, or finds
+ * an input that tells them apart. Merged subterms make the gates above
+ * them equal too, by the structural hashing in Tseitin, so that the 
+ * miter of the outputs, which is checked last, is much smaller. What 
+ * the solver learns while sweeping is kept for that final check.
+ * 
+ * @see "A. Mishchenko et al. FRAIGs: A Unifying Representation for 
+ * Logic Synthesis and Verification. ERL Technical Report, 2005."
+ */
+public final class Sweeper {
+
+	/** Number of words of random inputs to simulate: 64 inputs each. */
+	public static final int SIMULATION_WORDS = 4;
+
+	/** Most candidates to try for one subterm. */
+	public static final int MAX_CANDIDATES = 4;
+
+	/** The values of a subterm on the random inputs, in the phase whose first bit is 0. */
+	private static final class Signature {
+		final long[] words;
+		final int hash;
+		Signature(final long[] words) {
+			this.words = words;
+			this.hash = Arrays.hashCode(words);
+		}
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Signature && Arrays.equals(words, ((Signature) obj).words);
+		}
+	}
+
+	private final Tseitin encoder;
+	private int proved = 0;
+	private int refuted = 0;
+
+	public Sweeper(final Tseitin encoder) {
+		this.encoder = encoder;
+	}
+
+	/**
+	 * Encode the roots and all their subterms, merging those that are
+	 * proved equivalent. Afterwards encoder.encode() gives the merged 
+	 * literals.
+	 */
+	public void sweep(final List<? extends Expr> roots) {
+		// subterms, children before parents
+		final List<Expr> nodes = new ArrayList<Expr>();
+		final Set<Expr> visited = new HashSet<Expr>();
+		for (final Expr e : roots) {
+			order(e, nodes, visited);
+		}
+
+		// simulate
+		final Map<String,Integer> inputs = new LinkedHashMap<String,Integer>();
+		final WordEvaluator evaluator = new WordEvaluator(nodes, inputs);
+		final long[][] signatures = new long[nodes.size()][SIMULATION_WORDS];
+		final long[] in = new long[inputs.size()];
+		final long[] out = new long[nodes.size()];
+		final Random random = new Random(351);
+		for (int w = 0; w < SIMULATION_WORDS; w++) {
+			for (int i = 0; i < in.length; i++) {
+				in[i] = random.nextLong();
+			}
+			evaluator.evaluate(in, out);
+			for (int n = 0; n < out.length; n++) {
+				signatures[n][w] = out[n];
+			}
+		}
+
+		// the literals of each class of candidates, in the phase of the signature
+		final Map<Signature,List<Integer>> classes = new HashMap<Signature,List<Integer>>();
+		final List<Integer> constants = new ArrayList<Integer>();
+		constants.add(encoder.falseLit);
+		classes.put(new Signature(new long[SIMULATION_WORDS]), constants);
+
+		for (int n = 0; n < nodes.size(); n++) {
+			final Expr e = nodes.get(n);
+			final long[] words = signatures[n];
+			final boolean complemented = (words[0] & 1) != 0;
+			if (complemented) {
+				for (int w = 0; w < words.length; w++) {
+					words[w] = ~words[w];
+				}
+			}
+			final int lit = complemented ? -encoder.encode(e) : encoder.encode(e);
+			final Signature key = new Signature(words);
+			List<Integer> candidates = classes.get(key);
+			if (candidates == null) {
+				candidates = new ArrayList<Integer>(1);
+				classes.put(key, candidates);
+			}
+			boolean merged = false;
+			for (int c = 0; c < candidates.size() && c < MAX_CANDIDATES; c++) {
+				final int candidate = candidates.get(c);
+				if (candidate == lit) {
+					// already equal by structure
+					merged = true;
+					break;
+				}
+				if (equal(lit, candidate)) {
+					encoder.merge(e, complemented ? -candidate : candidate);
+					proved++;
+					merged = true;
+					break;
+				}
+				refuted++;
+			}
+			if (!merged) {
+				candidates.add(lit);
+			}
+		}
+	}
+
+	private static void order(final Expr e, final List<Expr> nodes, final Set<Expr> visited) {
+		if (!visited.add(e)) {
+			return;
+		}
+		if (e instanceof UnaryExpr) {
+			order(((UnaryExpr) e).expr, nodes, visited);
+		} else if (e instanceof BinaryExpr) {
+			order(((BinaryExpr) e).left, nodes, visited);
+			order(((BinaryExpr) e).right, nodes, visited);
+		} else if (e instanceof NaryExpr) {
+			for (final Expr c : ((NaryExpr) e).children) {
+				order(c, nodes, visited);
+			}
+		}
+		nodes.add(e);
+	}
+
+	/**
+	 * Whether two literals are equal in every model. If they are, the
+	 * solver is told so.
+	 */
+	private boolean equal(final int a, final int b) {
+		final int d = encoder.xor(a, b);
+		if (d == encoder.falseLit) {
+			return true;
+		}
+		if (encoder.solver.solve(d)) {
+			return false;
+		}
+		encoder.solver.addClause(-d);
+		return true;
+	}
+
+	/** Number of subterms merged with an equivalent one by SAT. */
+	public int proved() {
+		return proved;
+	}
+
+	/** Number of candidates that SAT told apart. */
+	public int refuted() {
+		return refuted;
+	}
+
+}
@@ -0,0 +1,151 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import ece351.f.ast.FProgram;
+import ece351.f.sat.EquivalenceChecker.Result;
+import ece351.f.sat.EquivalenceChecker.Tier;
+import ece351.util.BaseTest351;
+
+public class TestEquivalenceCache extends BaseTest351 {
+
+	private static final FProgram P1 = fprogram("x <= not (a or b); y <= c;");
+	private static final FProgram P2 = fprogram("y <= c; x <= not a and not b;");
+	private static final FProgram P3 = fprogram("x <= not a or not b; y <= c;");
+
+	@Test
+	public void testInMemory() {
+		final EquivalenceChecker c = new EquivalenceChecker(new EquivalenceCache(16));
+		assertEquals(Tier.TRUTH_TABLE, c.check(P1, P2).tier);
+		final Result r = c.check(P1, P2);
+		assertTrue(r.equivalent);
+		assertEquals(Tier.CACHE, r.tier);
+		// the key does not depend on the order of the programs
+		assertEquals(Tier.CACHE, c.check(P2, P1).tier);
+		assertFalse(c.check(P1, P3).equivalent);
+		assertFalse(c.check(P3, P1).equivalent);
+		assertEquals(3, c.decided(Tier.CACHE));
+	}
+
+	@Test
+	public void testLeastRecentlyUsed() {
+		final EquivalenceCache cache = new EquivalenceCache(2);
+		cache.put("a", true);
+		cache.put("b", false);
+		assertTrue(cache.get("a"));
+		cache.put("c", true);
+		// b was the least recently used
+		assertNull(cache.get("b"));
+		assertTrue(cache.get("a"));
+		assertTrue(cache.get("c"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testPersistent() throws IOException {
+		final File file = File.createTempFile("TestEquivalenceCache", ".log");
+		try {
+			final EquivalenceCache cache1 = new EquivalenceCache(16, file);
+			final EquivalenceChecker c1 = new EquivalenceChecker(cache1);
+			c1.check(P1, P2);
+			c1.check(P1, P3);
+			cache1.close();
+			// a truncated line, as if the writer crashed
+			try (final FileWriter w = new FileWriter(file, true)) {
+				w.write("0123");
+			}
+			// as if in the next run
+			final EquivalenceCache cache2 = new EquivalenceCache(16, file);
+			final EquivalenceChecker c2 = new EquivalenceChecker(cache2);
+			final Result r1 = c2.check(P2, P1);
+			assertEquals(Tier.CACHE, r1.tier);
+			assertTrue(r1.equivalent);
+			final Result r2 = c2.check(P1, P3);
+			assertEquals(Tier.CACHE, r2.tier);
+			assertFalse(r2.equivalent);
+			// a new answer goes on a line of its own
+			assertEquals(Tier.TRUTH_TABLE, c2.check(P2, P3).tier);
+			cache2.close();
+			final EquivalenceChecker c3 = new EquivalenceChecker(new EquivalenceCache(16, file));
+			assertEquals(Tier.CACHE, c3.check(P3, P2).tier);
+		} finally {
+			file.delete();
+			new File(file.getPath() + ".idx").delete();
+		}
+	}
+
+	@Test
+	public void testOnDisk() throws IOException {
+		final File file = File.createTempFile("TestEquivalenceCache", ".log");
+		final File index = new File(file.getPath() + ".idx");
+		try {
+			// more answers than the initial index has slots
+			final int n = 5000;
+			final EquivalenceCache cache1 = new EquivalenceCache(4, file);
+			for (int i = 0; i < n; i++) {
+				cache1.put("k" + i, i % 3 == 0);
+			}
+			assertEquals(4, cache1.size());
+			// evicted from memory, but still on disk
+			assertTrue(cache1.get("k0"));
+			assertFalse(cache1.get("k1"));
+			assertNull(cache1.get("k" + n));
+			cache1.close();
+			// as if in the next run
+			final EquivalenceCache cache2 = new EquivalenceCache(4, file);
+			for (int i = 0; i < n; i++) {
+				assertEquals(i % 3 == 0, cache2.get("k" + i));
+			}
+			assertEquals(4, cache2.size());
+			cache2.close();
+			// the index is rebuilt from the log if it is lost
+			assertTrue(index.delete());
+			final EquivalenceCache cache3 = new EquivalenceCache(4, file);
+			assertFalse(cache3.get("k" + (n - 1)));
+			cache3.put("k" + n, true);
+			cache3.close();
+			try (final EquivalenceCache cache4 = new EquivalenceCache(4, file)) {
+				assertTrue(cache4.get("k" + n));
+			}
+		} finally {
+			file.delete();
+			index.delete();
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.VarExpr;
+import ece351.f.ast.FProgram;
+import ece351.f.sat.EquivalenceChecker.Result;
+import ece351.f.sat.EquivalenceChecker.Tier;
+import ece351.util.BaseTest351;
+import ece351.util.PersistentVector;
+
+public class TestEquivalenceChecker extends BaseTest351 {
+
+	private static List<Expr> inputs(final int n, final boolean negated) {
+		final List<Expr> l = new ArrayList<Expr>();
+		for (int i = 0; i < n; i++) {
+			final Expr v = new VarExpr("i" + i);
+			l.add(negated ? new NotExpr(v) : v);
+		}
+		return l;
+	}
+
+	@Test
+	public void testStructure() {
+		final EquivalenceChecker c = new EquivalenceChecker();
+		final FProgram p = fprogram("x <= a and b; y <= c;");
+		assertEquals(Tier.IDENTITY, c.check(p, p).tier);
+		final Result r = c.check(p, fprogram("y <= c; x <= b and a;"));
+		assertTrue(r.equivalent);
+		assertEquals(Tier.STRUCTURE, r.tier);
+		assertFalse(c.check(p, fprogram("x <= a and b; z <= c;")).equivalent);
+		assertEquals(2, c.decided(Tier.STRUCTURE));
+	}
+
+	@Test
+	public void testTruthTable() {
+		final Result r = new EquivalenceChecker().check(fprogram("x <= not (a or b);"), fprogram("x <= not a and not b;"));
+		assertTrue(r.equivalent);
+		assertEquals(Tier.TRUTH_TABLE, r.tier);
+	}
+
+	@Test
+	public void testSimulation() {
+		// and versus or of 30 inputs differ on almost every input
+		final Result r = new EquivalenceChecker().check(
+				program(new NaryAndExpr(inputs(30, false))), 
+				program(new NaryOrExpr(inputs(30, false))));
+		assertFalse(r.equivalent);
+		assertEquals(Tier.SIMULATION, r.tier);
+		final Map<String,Boolean> cex = r.counterexample;
+		assertNotNull(cex);
+		assertTrue(cex.containsValue(true) && cex.containsValue(false));
+	}
+
+	@Test
+	public void testSat() {
+		// De Morgan over 30 inputs: too many to try them all
+		final EquivalenceChecker c = new EquivalenceChecker();
+		final FProgram nor = program(new NotExpr(new NaryOrExpr(inputs(30, false))));
+		final Result r = c.check(nor, program(new NaryAndExpr(inputs(30, true))));
+		assertTrue(r.equivalent);
+		assertEquals(Tier.SAT, r.tier);
+		// differ on one input in 2^30: random simulation misses it
+		final Result r2 = c.check(nor, program(ConstantExpr.FalseExpr));
+		assertFalse(r2.equivalent);
+		assertEquals(Tier.SAT, r2.tier);
+		assertFalse(r2.counterexample.containsValue(true));
+		assertEquals(2, c.decided(Tier.SAT));
+	}
+
+	/** o0 <= i0 and i1 ...; o1 <= i4 and i5 ...; each output has its own 4 inputs */
+	private static FProgram cones(final int outputs, final boolean demorgan) {
+		final List<AssignmentStatement> l = new ArrayList<AssignmentStatement>();
+		for (int o = 0; o < outputs; o++) {
+			final List<Expr> pos = new ArrayList<Expr>();
+			final List<Expr> neg = new ArrayList<Expr>();
+			for (int i = 0; i < 4; i++) {
+				final VarExpr v = new VarExpr("i" + (4 * o + i));
+				pos.add(v);
+				neg.add(new NotExpr(v));
+			}
+			final Expr e = demorgan ? new NotExpr(new NaryOrExpr(neg)) : new NaryAndExpr(pos);
+			l.add(new AssignmentStatement(new VarExpr("o" + o), e));
+		}
+		return new FProgram(PersistentVector.of(l.toArray(new AssignmentStatement[0])));
+	}
+
+	@Test
+	public void testCones() {
+		// 40 inputs in all, but only 4 per output: no need for the solver
+		for (final boolean parallel : new boolean[]{false, true}) {
+			final EquivalenceChecker c = new EquivalenceChecker(null, parallel);
+			final Result r = c.check(cones(10, false), cones(10, true));
+			assertTrue(r.equivalent);
+			assertEquals(Tier.TRUTH_TABLE, r.tier);
+			// a wide output that differs rarely still goes to the solver
+			final List<AssignmentStatement> l = new ArrayList<AssignmentStatement>(cones(10, false).formulas);
+			l.add(new AssignmentStatement(new VarExpr("x"), new NaryAndExpr(inputs(30, false))));
+			final List<AssignmentStatement> l2 = new ArrayList<AssignmentStatement>(cones(10, true).formulas);
+			l2.add(new AssignmentStatement(new VarExpr("x"), ConstantExpr.FalseExpr));
+			final Result r2 = c.check(
+					new FProgram(PersistentVector.of(l.toArray(new AssignmentStatement[0]))),
+					new FProgram(PersistentVector.of(l2.toArray(new AssignmentStatement[0]))));
+			assertFalse(r2.equivalent);
+			assertEquals(Tier.SAT, r2.tier);
+			assertFalse(r2.counterexample.containsValue(false));
+		}
+	}
+
+	@Test
+	public void testConesOnExecutor() {
+		// the cones go to the executor given, one task per output
+		final AtomicInteger tasks = new AtomicInteger();
+		final Executor counting = r -> {
+			tasks.incrementAndGet();
+			r.run();
+		};
+		final Result r = new EquivalenceChecker(null, counting).check(cones(10, false), cones(10, true));
+		assertTrue(r.equivalent);
+		assertEquals(10, tasks.get());
+	}
+
+	@Test
+	public void testCheckAll() {
+		final FProgram nor = program(new NotExpr(new NaryOrExpr(inputs(30, false))));
+		final FProgram and = program(new NaryAndExpr(inputs(30, true)));
+		final List<FProgram> left = new ArrayList<FProgram>();
+		final List<FProgram> right = new ArrayList<FProgram>();
+		left.add(nor); right.add(and);
+		left.add(fprogram("x <= not (a or b);")); right.add(fprogram("x <= not a and not b;"));
+		left.add(nor); right.add(program(ConstantExpr.FalseExpr));
+		left.add(and); right.add(nor);
+		final List<Result> results = new EquivalenceChecker().checkAll(left, right);
+		assertEquals(4, results.size());
+		assertTrue(results.get(0).equivalent);
+		assertEquals(Tier.SAT, results.get(0).tier);
+		assertTrue(results.get(1).equivalent);
+		assertEquals(Tier.TRUTH_TABLE, results.get(1).tier);
+		assertFalse(results.get(2).equivalent);
+		assertEquals(Tier.SAT, results.get(2).tier);
+		assertFalse(results.get(2).counterexample.containsValue(true));
+		assertTrue(results.get(3).equivalent);
+	}
+
+}
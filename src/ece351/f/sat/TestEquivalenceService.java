@@ -0,0 +1,95 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.NotExpr;
+import ece351.f.ast.FProgram;
+import ece351.f.simplifier.TestSimplifier2;
+
+public class TestEquivalenceService {
+
+	@Test
+	public void testConcurrentChecks() throws Exception {
+		final List<CompletableFuture<Boolean>> same = new ArrayList<CompletableFuture<Boolean>>();
+		final List<CompletableFuture<Boolean>> different = new ArrayList<CompletableFuture<Boolean>>();
+		try (final EquivalenceService service = new EquivalenceService(4)) {
+			for (final Map.Entry<String,FProgram> e : TestSimplifier2.ORIGINAL.entrySet()) {
+				final FProgram original = e.getValue();
+				final FProgram simplified = TestSimplifier2.SIMPLIFIED.get(e.getKey());
+				same.add(service.equivalent(original, simplified));
+				same.add(service.equivalent(simplified, original.simplify()));
+				// negate the first output
+				final List<AssignmentStatement> negated = new ArrayList<AssignmentStatement>(original.formulas);
+				negated.set(0, negated.get(0).varyExpr(new NotExpr(negated.get(0).expr)));
+				different.add(service.equivalent(original, new FProgram(negated)));
+			}
+			for (final CompletableFuture<Boolean> f : same) {
+				assertTrue(f.get());
+			}
+			for (final CompletableFuture<Boolean> f : different) {
+				assertFalse(f.get());
+			}
+			long decided = 0;
+			for (final EquivalenceChecker.Tier t : EquivalenceChecker.Tier.values()) {
+				decided += service.checker().decided(t);
+			}
+			assertEquals(same.size() + different.size(), decided);
+		}
+	}
+
+	@Test
+	public void testCheckAfterClose() throws Exception {
+		final FProgram fp = TestSimplifier2.ORIGINAL.values().iterator().next();
+		final EquivalenceService service = new EquivalenceService(1);
+		service.close();
+		final CompletableFuture<Boolean> f = service.equivalent(fp, fp);
+		assertTrue(f.isCompletedExceptionally());
+		try {
+			f.get(1, TimeUnit.SECONDS);
+			fail("check after close should fail");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.XOrExpr;
+import ece351.f.ast.FProgram;
+import ece351.util.BaseTest351;
+import ece351.util.PersistentVector;
+
+public class TestMiter extends BaseTest351 {
+
+	private static Map<String,Boolean> batch(final BatchMiter b, final String p1, final String p2) {
+		return b.check(fprogram(p1).formulas, fprogram(p2).formulas);
+	}
+
+	@Test
+	public void testDeMorgan() {
+		final FProgram p1 = fprogram("x <= not (a and b);");
+		final FProgram p2 = fprogram("x <= not a or not b;");
+		assertTrue(new Miter(p1, p2).equivalent());
+		assertTrue(p1.equivalent(p2));
+	}
+
+	@Test
+	public void testCounterexample() {
+		final FProgram p1 = fprogram("x <= a and b; y <= a or c;");
+		final FProgram p2 = fprogram("x <= a and b; y <= a and c;");
+		final Miter m = new Miter(p1, p2);
+		assertFalse(m.equivalent());
+		final Map<String,Boolean> cex = m.counterexample();
+		assertNotNull(cex);
+		// a or c differs from a and c exactly when a differs from c
+		assertTrue(cex.get("a") != cex.get("c"));
+	}
+
+	@Test
+	public void testStructurallyEqual() {
+		final FProgram p1 = fprogram("x <= a and (b or c);");
+		final Miter m = new Miter(p1, p1);
+		assertTrue(m.equivalent());
+		assertNull(m.counterexample());
+		// the same gates: nothing to solve
+		assertEquals(0, m.solver().decisions());
+	}
+
+	@Test
+	public void testXor() {
+		final FProgram p1 = fprogram("x <= (a and not b) or (not a and b);");
+		final FProgram p2 = fprogram("x <= (a or b) and not (a and b);");
+		assertTrue(p1.equivalent(p2));
+		assertFalse(p1.equivalent(fprogram("x <= (a or b) and (a and b);")));
+	}
+
+	@Test
+	public void testConstants() {
+		assertTrue(fprogram("x <= a or '1';").equivalent(fprogram("x <= '1';")));
+		assertFalse(fprogram("x <= a and '1';").equivalent(fprogram("x <= '1';")));
+	}
+
+	@Test
+	public void testBatch() {
+		final BatchMiter b = new BatchMiter();
+		assertNull(batch(b, "x <= not (a and b);", "x <= not a or not b;"));
+		final Map<String,Boolean> cex = batch(b, "x <= a and b; y <= a or c;", "x <= a and b; y <= a and c;");
+		assertNotNull(cex);
+		assertTrue(cex.get("a") != cex.get("c"));
+		// the inputs of this pair only
+		assertEquals(3, cex.size());
+		// the miter of a pair that differs must not affect the next pair
+		assertNull(batch(b, "x <= a or c;", "x <= c or a;"));
+		assertEquals(2, batch(b, "x <= a;", "x <= d;").size());
+		assertNull(batch(b, "x <= (a and not b) or (not a and b);", "x <= (a or b) and not (a and b);"));
+		assertEquals(5, b.checked());
+	}
+
+	/** Ripple-carry adder of two n-bit numbers, with two ways to write the carry. */
+	private static FProgram adder(final int n, final boolean majority) {
+		final List<AssignmentStatement> l = new ArrayList<AssignmentStatement>();
+		Expr carry = new VarExpr("cin");
+		for (int i = 0; i < n; i++) {
+			final Expr a = new VarExpr("a" + i);
+			final Expr b = new VarExpr("b" + i);
+			l.add(new AssignmentStatement(new VarExpr("s" + i), new XOrExpr(new XOrExpr(a, b), carry)));
+			carry = majority
+					? new NaryOrExpr(new NaryAndExpr(a, b), new NaryAndExpr(a, carry), new NaryAndExpr(b, carry))
+					: new NaryOrExpr(new NaryAndExpr(a, b), new NaryAndExpr(carry, new XOrExpr(a, b)));
+		}
+		l.add(new AssignmentStatement(new VarExpr("cout"), carry));
+		return new FProgram(PersistentVector.of(l.toArray(new AssignmentStatement[0])));
+	}
+
+	@Test
+	public void testSweep() {
+		final FProgram p1 = adder(32, true);
+		final FProgram p2 = adder(32, false);
+		final Miter m = new Miter(p1, p2, true);
+		assertTrue(m.equivalent());
+		// each carry is proved equal to the other, so the outputs encode the same
+		assertTrue(m.sweeper().proved() >= 32);
+		assertEquals(0, m.sweeper().refuted());
+		assertTrue(new Miter(p1, p2).equivalent());
+		assertNull(new Miter(p1, p2).sweeper());
+		// a sum bit that ignores the carry
+		final List<AssignmentStatement> l = new ArrayList<AssignmentStatement>(p2.formulas);
+		l.set(20, new AssignmentStatement(new VarExpr("s20"), new XOrExpr(new VarExpr("a20"), new VarExpr("b20"))));
+		final Miter m2 = new Miter(p1, new FProgram(PersistentVector.of(l.toArray(new AssignmentStatement[0]))), true);
+		assertFalse(m2.equivalent());
+		assertNotNull(m2.counterexample());
+	}
+
+}
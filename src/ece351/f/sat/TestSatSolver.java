@@ -0,0 +1,154 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestSatSolver {
+
+	@Test
+	public void testTrivial() {
+		final SatSolver s = new SatSolver();
+		final int a = s.newVar();
+		final int b = s.newVar();
+		s.addClause(a, b);
+		s.addClause(-a);
+		assertTrue(s.solve());
+		assertFalse(s.modelValue(a));
+		assertTrue(s.modelValue(b));
+		assertFalse(s.addClause(-b));
+		assertFalse(s.solve());
+	}
+
+	@Test
+	public void testPigeonhole() {
+		// 7 pigeons do not fit in 6 holes
+		final int pigeons = 7;
+		final int holes = 6;
+		final SatSolver s = new SatSolver();
+		final int[][] in = new int[pigeons][holes];
+		for (int p = 0; p < pigeons; p++) {
+			for (int h = 0; h < holes; h++) {
+				in[p][h] = s.newVar();
+			}
+			s.addClause(in[p]);
+		}
+		for (int h = 0; h < holes; h++) {
+			for (int p = 0; p < pigeons; p++) {
+				for (int q = p + 1; q < pigeons; q++) {
+					s.addClause(-in[p][h], -in[q][h]);
+				}
+			}
+		}
+		assertFalse(s.solve());
+		assertTrue(s.conflicts() > 0);
+	}
+
+	@Test
+	public void testAssumptions() {
+		final SatSolver s = new SatSolver();
+		final int a = s.newVar();
+		final int b = s.newVar();
+		final int c = s.newVar();
+		// a => b, b => c
+		s.addClause(-a, b);
+		s.addClause(-b, c);
+		assertFalse(s.solve(a, -c));
+		assertTrue(s.solve(a));
+		assertTrue(s.modelValue(c));
+		// assumptions hold for one call only
+		assertTrue(s.solve(-c));
+		assertFalse(s.modelValue(a));
+	}
+
+	@Test
+	public void testRandom3Sat() {
+		// compare against brute force around the satisfiability threshold
+		final Random random = new Random(351);
+		for (int round = 0; round < 200; round++) {
+			final int vars = 12;
+			final int count = 45 + random.nextInt(16);
+			final List<int[]> clauses = new ArrayList<int[]>();
+			final SatSolver s = new SatSolver();
+			for (int v = 0; v < vars; v++) {
+				s.newVar();
+			}
+			for (int i = 0; i < count; i++) {
+				final int[] c = new int[3];
+				for (int k = 0; k < 3; k++) {
+					c[k] = (1 + random.nextInt(vars)) * (random.nextBoolean() ? 1 : -1);
+				}
+				clauses.add(c);
+				s.addClause(c);
+			}
+			boolean expected = false;
+			for (int m = 0; m < (1 << vars) && !expected; m++) {
+				expected = satisfies(clauses, m);
+			}
+			final boolean actual = s.solve();
+			assertEquals(expected, actual);
+			if (actual) {
+				int m = 0;
+				for (int v = 1; v <= vars; v++) {
+					if (s.modelValue(v)) m |= 1 << (v - 1);
+				}
+				assertTrue(satisfies(clauses, m));
+			}
+		}
+	}
+
+	private static boolean satisfies(final List<int[]> clauses, final int model) {
+		for (final int[] c : clauses) {
+			boolean sat = false;
+			for (final int p : c) {
+				final boolean value = (model & (1 << (Math.abs(p) - 1))) != 0;
+				if (value == (p > 0)) {
+					sat = true;
+				}
+			}
+			if (!sat) return false;
+		}
+		return true;
+	}
+
+	@Test
+	public void testLuby() {
+		final long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8};
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], SatSolver.luby(i));
+		}
+	}
+
+}
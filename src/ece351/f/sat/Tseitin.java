@@ -0,0 +1,253 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.sat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ece351.common.ast.AndExpr;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.EqualExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NAndExpr;
+import ece351.common.ast.NOrExpr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.OrExpr;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.XNOrExpr;
+import ece351.common.ast.XOrExpr;
+
+/**
+ * Tseitin encoding of expressions into the clauses of a SatSolver.
+ * 
+ * Each gate gets a fresh variable, constrained by clauses to equal the
+ * value of the gate. So the encoding is linear in the size of the 
+ * expression DAG: shared subterms are encoded once. Gates are also
+ * hashed on their (normalized) input literals, so structurally 
+ * different expressions that compute the same gate, such as x . y as
+ * an AndExpr and as an NaryAndExpr, get the same literal.
+ * 
+ * Negation costs nothing: it just negates the literal.
+ * 
+ * @see http://en.wikipedia.org/wiki/Tseitin_transformation
+ */
+public final class Tseitin {
+
+	/** Key for the gate table: the kind of gate and its input literals. */
+	private static final class Gate {
+		final boolean xor;
+		final int[] inputs;
+		final int hash;
+		Gate(final boolean xor, final int[] inputs) {
+			this.xor = xor;
+			this.inputs = inputs;
+			this.hash = Arrays.hashCode(inputs) * 2 + (xor ? 1 : 0);
+		}
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Gate)) return false;
+			final Gate that = (Gate) obj;
+			return xor == that.xor && Arrays.equals(inputs, that.inputs);
+		}
+	}
+
+	public final SatSolver solver;
+
+	/** The literal that is always true. */
+	public final int trueLit;
+	public final int falseLit;
+
+	private final Map<String,Integer> inputs = new LinkedHashMap<String,Integer>();
+	private final Map<Expr,Integer> exprs = new HashMap<Expr,Integer>();
+	private final Map<Gate,Integer> gates = new HashMap<Gate,Integer>();
+
+	public Tseitin(final SatSolver solver) {
+		this.solver = solver;
+		trueLit = solver.newVar();
+		falseLit = -trueLit;
+		solver.addClause(trueLit);
+	}
+
+	/**
+	 * The literal for the value of e.
+	 */
+	public int encode(final Expr e) {
+		final Integer known = exprs.get(e);
+		if (known != null) {
+			return known;
+		}
+		final int result;
+		if (e instanceof ConstantExpr) {
+			result = ((ConstantExpr) e).b ? trueLit : falseLit;
+		} else if (e instanceof VarExpr) {
+			result = input(((VarExpr) e).identifier);
+		} else if (e instanceof NotExpr) {
+			result = -encode(((NotExpr) e).expr);
+		} else if (e instanceof AndExpr) {
+			result = and(encode(((AndExpr) e).left), encode(((AndExpr) e).right));
+		} else if (e instanceof OrExpr) {
+			result = or(encode(((OrExpr) e).left), encode(((OrExpr) e).right));
+		} else if (e instanceof NAndExpr) {
+			result = -and(encode(((NAndExpr) e).left), encode(((NAndExpr) e).right));
+		} else if (e instanceof NOrExpr) {
+			result = -or(encode(((NOrExpr) e).left), encode(((NOrExpr) e).right));
+		} else if (e instanceof XOrExpr) {
+			result = xor(encode(((XOrExpr) e).left), encode(((XOrExpr) e).right));
+		} else if (e instanceof XNOrExpr) {
+			result = -xor(encode(((XNOrExpr) e).left), encode(((XNOrExpr) e).right));
+		} else if (e instanceof EqualExpr) {
+			result = -xor(encode(((EqualExpr) e).left), encode(((EqualExpr) e).right));
+		} else if (e instanceof NaryAndExpr) {
+			result = and(encodeAll((NaryExpr) e));
+		} else if (e instanceof NaryOrExpr) {
+			result = or(encodeAll((NaryExpr) e));
+		} else {
+			throw new IllegalArgumentException("cannot encode " + e.getClass().getSimpleName());
+		}
+		exprs.put(e, result);
+		return result;
+	}
+
+	/**
+	 * Use lit as the literal of e from now on, for e itself and for the
+	 * expressions containing e that are encoded later. The caller must 
+	 * know that lit and the encoding of e are equal in every model.
+	 */
+	public void merge(final Expr e, final int lit) {
+		exprs.put(e, lit);
+	}
+
+	private int[] encodeAll(final NaryExpr e) {
+		final int[] lits = new int[e.children.size()];
+		for (int i = 0; i < lits.length; i++) {
+			lits[i] = encode(e.children.get(i));
+		}
+		return lits;
+	}
+
+	/**
+	 * The variable for an input, made on first use.
+	 */
+	public int input(final String name) {
+		Integer v = inputs.get(name);
+		if (v == null) {
+			v = solver.newVar();
+			inputs.put(name, v);
+		}
+		return v;
+	}
+
+	/** The inputs encoded so far, in order of first use. */
+	public Map<String,Integer> inputs() {
+		return Collections.unmodifiableMap(inputs);
+	}
+
+	/**
+	 * A literal for the conjunction of the given literals.
+	 */
+	public int and(final int... lits) {
+		final int[] sorted = lits.clone();
+		Arrays.sort(sorted);
+		int n = 0;
+		for (final int p : sorted) {
+			if (p == falseLit) return falseLit;
+			if (p == trueLit) continue;
+			if (n > 0 && sorted[n - 1] == p) continue;
+			sorted[n++] = p;
+		}
+		if (n == 0) return trueLit;
+		if (n == 1) return sorted[0];
+		final int[] ins = Arrays.copyOf(sorted, n);
+		// x . !x = 0: sorted by value, so look the negation up
+		for (final int p : ins) {
+			if (p < 0 && Arrays.binarySearch(ins, -p) >= 0) return falseLit;
+		}
+		final Gate key = new Gate(false, ins);
+		final Integer known = gates.get(key);
+		if (known != null) {
+			return known;
+		}
+		final int g = solver.newVar();
+		// g => each input
+		final int[] all = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			solver.addClause(-g, ins[i]);
+			all[i] = -ins[i];
+		}
+		// all inputs => g
+		all[n] = g;
+		solver.addClause(all);
+		gates.put(key, g);
+		return g;
+	}
+
+	/**
+	 * A literal for the disjunction of the given literals.
+	 */
+	public int or(final int... lits) {
+		final int[] negated = new int[lits.length];
+		for (int i = 0; i < lits.length; i++) {
+			negated[i] = -lits[i];
+		}
+		return -and(negated);
+	}
+
+	/**
+	 * A literal for the exclusive or of the given literals.
+	 */
+	public int xor(int a, int b) {
+		if (a == b) return falseLit;
+		if (a == -b) return trueLit;
+		if (Math.abs(a) == trueLit) return a == trueLit ? -b : b;
+		if (Math.abs(b) == trueLit) return b == trueLit ? -a : a;
+		// !a xor b = !(a xor b): hash on positive inputs only
+		final boolean negate = (a < 0) != (b < 0);
+		a = Math.abs(a);
+		b = Math.abs(b);
+		final Gate key = new Gate(true, a < b ? new int[]{a, b} : new int[]{b, a});
+		Integer g = gates.get(key);
+		if (g == null) {
+			g = solver.newVar();
+			solver.addClause(-g, a, b);
+			solver.addClause(-g, -a, -b);
+			solver.addClause(g, -a, b);
+			solver.addClause(g, a, -b);
+			gates.put(key, g);
+		}
+		return negate ? -g : g;
+	}
+}
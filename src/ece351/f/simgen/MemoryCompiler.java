@@ -0,0 +1,149 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles a Java source held in a string, and loads the result, without
+ * touching the file system. The class files that javac writes are kept 
+ * in memory, and defined by a fresh class loader per compilation, so 
+ * that classes of the same name from different compilations do not 
+ * clash. The parent of that loader is the loader of this class, so the
+ * compiled code can use the ece351 classes.
+ */
+final class MemoryCompiler {
+
+	private MemoryCompiler() {}
+
+	/** A source file whose contents are a string. */
+	private static final class Source extends SimpleJavaFileObject {
+		private final String code;
+		Source(final String className, final String code) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.code = code;
+		}
+		@Override
+		public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+
+	/** A class file whose contents are kept in memory. */
+	private static final class ClassFile extends SimpleJavaFileObject {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ClassFile(final String className) {
+			super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+		}
+		@Override
+		public OutputStream openOutputStream() {
+			return bytes;
+		}
+	}
+
+	/** Defines the classes of one compilation. */
+	private static final class Loader extends ClassLoader {
+		private final Map<String,ClassFile> classes;
+		Loader(final Map<String,ClassFile> classes) {
+			super(MemoryCompiler.class.getClassLoader());
+			this.classes = classes;
+		}
+		@Override
+		protected Class<?> findClass(final String name) throws ClassNotFoundException {
+			final ClassFile f = classes.get(name);
+			if (f == null) {
+				throw new ClassNotFoundException(name);
+			}
+			final byte[] b = f.bytes.toByteArray();
+			return defineClass(name, b, 0, b.length);
+		}
+	}
+
+	/**
+	 * Compile the source of the named class, and load that class.
+	 * @throws IllegalStateException if there is no system Java compiler
+	 * @throws RuntimeException if the source does not compile
+	 */
+	static Class<?> compile(final String className, final String code) {
+		final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		if (javac == null) {
+			throw new IllegalStateException("no programmatic access to the javac compiler, see lab manual section 0");
+		}
+		final Map<String,ClassFile> classes = new HashMap<String,ClassFile>();
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		final StandardJavaFileManager standard = javac.getStandardFileManager(diagnostics, null, null);
+		final JavaFileManager files = new ForwardingJavaFileManager<StandardJavaFileManager>(standard) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(final Location location, final String name, 
+					final JavaFileObject.Kind kind, final FileObject sibling) {
+				final ClassFile f = new ClassFile(name);
+				classes.put(name, f);
+				return f;
+			}
+		};
+		try {
+			final boolean ok = javac.getTask(null, files, diagnostics, 
+					null, null, Collections.singletonList(new Source(className, code))).call();
+			if (!ok) {
+				final StringBuilder b = new StringBuilder("compilation of " + className + " failed:");
+				for (final Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+					b.append(System.lineSeparator());
+					b.append(d.toString());
+				}
+				throw new RuntimeException(b.toString());
+			}
+			return new Loader(classes).loadClass(className);
+		} catch (final ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		} finally {
+			try {
+				files.close();
+			} catch (final IOException e) {
+				// nothing to release that matters
+			}
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import java.io.PrintWriter;
+
+import ece351.f.FParser;
+import ece351.f.ast.FProgram;
+import ece351.util.CommandLine;
+import ece351.w.ast.WProgram;
+import ece351.w.ast.Waveform;
+import ece351.w.parboiled.WParboiledParser;
+
+/**
+ * Simulates an F program on a W program in this process, and writes 
+ * the waves in the same format as the generated Simulator_* classes.
+ * 
+ * Usage: Simulate program.f input.wave [-f output.wave]
+ * 
+ * Short simulations are interpreted (see SimulatorInterpreter): making
+ * a class would take longer than the simulation itself. Longer ones 
+ * are compiled to bytecode (see SimulatorAssembler).
+ */
+public final class Simulate {
+
+	/** Longest simulation, in time steps, that is interpreted rather than compiled. */
+	public static final int INTERPRET_TIME_STEPS = 1 << 12;
+
+	private Simulate() {}
+
+	public static void main(final String[] args) {
+		final CommandLine c = new CommandLine(args);
+		final FProgram program = FParser.parse(c);
+		final WProgram input = WParboiledParser.parse(c.readSecondInputSpec());
+		final WProgram output = simulator(program, input.timeCount()).simulate(input);
+		final PrintWriter pw = c.resolveOutputSpec();
+		write(input, output, pw);
+		pw.flush();
+	}
+
+	/**
+	 * A simulator for the program, suited to the given number of time steps.
+	 */
+	public static Simulator simulator(final FProgram program, final int timeCount) {
+		if (timeCount <= INTERPRET_TIME_STEPS) {
+			return SimulatorInterpreter.interpret(program);
+		} else {
+			return SimulatorAssembler.assemble(program);
+		}
+	}
+
+	/** The input waves, then a line per output, as the generated simulators write them. */
+	static void write(final WProgram input, final WProgram output, final PrintWriter pw) {
+		pw.println(input.toString());
+		for (final Waveform w : output.waveforms) {
+			final StringBuilder b = new StringBuilder(w.name.length() + w.bits.size() + 2);
+			b.append(w.name).append(':');
+			for (final String bit : w.bits) {
+				b.append(bit);
+			}
+			b.append(';');
+			pw.write(b.toString() + "\n");
+		}
+	}
+
+}
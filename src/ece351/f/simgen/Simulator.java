@@ -0,0 +1,67 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import ece351.w.ast.WProgram;
+import ece351.w.ast.Waveform;
+
+/**
+ * Simulates an F program: computes its output waveforms from the input
+ * waveforms. The classes that SimulatorGenerator generates implement 
+ * this interface.
+ */
+public interface Simulator {
+
+	/**
+	 * The output waveforms, one per formula and in the same order, for 
+	 * the given input waveforms.
+	 */
+	WProgram simulate(final WProgram input);
+
+	/**
+	 * Waveforms from strings of 0s and 1s, as the generated simulators
+	 * compute them.
+	 */
+	public static WProgram waves(final Map<String,? extends CharSequence> output) {
+		final List<Waveform> waveforms = new ArrayList<Waveform>(output.size());
+		for (final Map.Entry<String,? extends CharSequence> e : output.entrySet()) {
+			final CharSequence s = e.getValue();
+			final List<String> bits = new ArrayList<String>(s.length());
+			for (int i = 0; i < s.length(); i++) {
+				bits.add(s.charAt(i) == '1' ? "1" : "0");
+			}
+			waveforms.add(new Waveform(bits, e.getKey()));
+		}
+		return new WProgram(waveforms);
+	}
+
+}
@@ -0,0 +1,290 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import ece351.common.ast.AndExpr;
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.BinaryExpr;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.EqualExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NAndExpr;
+import ece351.common.ast.NOrExpr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.OrExpr;
+import ece351.common.ast.UnaryExpr;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.XNOrExpr;
+import ece351.common.ast.XOrExpr;
+import ece351.common.visitor.ExprVisitor;
+import ece351.f.ast.FProgram;
+
+/**
+ * Makes a simulator by writing its bytecode directly, with ASM, rather
+ * than by generating Java source and running javac (see 
+ * SimulatorGenerator). Each class is defined by a class loader of its 
+ * own, as MemoryCompiler does, so it can be unloaded as soon as the 
+ * simulator is no longer used.
+ * 
+ * The class extends WordSimulator, and its step() method is straight-
+ * line code over longs: it loads each input word into a local, then 
+ * computes each output on the operand stack and stores it. A subterm
+ * that occurs more than once is computed once and kept in a local.
+ * 
+ * A program too large for one method (64KB of bytecode) cannot be 
+ * assembled; ASM then throws an exception.
+ */
+public final class SimulatorAssembler extends ExprVisitor {
+
+	private static final String SUPER = Type.getInternalName(WordSimulator.class);
+	/** The same in every loader, since each loader defines only this class. */
+	private static final String NAME = SUPER.substring(0, SUPER.lastIndexOf('/') + 1) + "AssembledSimulator";
+	private static final String CONSTRUCTOR = "([Ljava/lang/String;[Ljava/lang/String;)V";
+
+	/** Local of each input: 0 is this, 1 is in, 2 is out. */
+	private final Map<String,Integer> inputs = new LinkedHashMap<String,Integer>();
+	/** Number of references to each subterm. */
+	private final Map<Expr,Integer> references = new HashMap<Expr,Integer>();
+	/** Local of each shared subterm computed so far. */
+	private final Map<Expr,Integer> locals = new HashMap<Expr,Integer>();
+	private int nextLocal = 3;
+	private MethodVisitor mv;
+
+	private SimulatorAssembler() {}
+
+	/** Defines one assembled class. */
+	private static final class Loader extends ClassLoader {
+		Loader() {
+			super(SimulatorAssembler.class.getClassLoader());
+		}
+		Class<?> define(final byte[] b) {
+			return defineClass(NAME.replace('/', '.'), b, 0, b.length);
+		}
+	}
+
+	/**
+	 * A simulator for the program, assembled and loaded in memory.
+	 */
+	public static Simulator assemble(final FProgram program) {
+		final SimulatorAssembler a = new SimulatorAssembler();
+		for (final AssignmentStatement f : program.formulas) {
+			a.count(f.expr);
+		}
+		final byte[] bytes = a.generate(program);
+		final String[] inputs = a.inputs.keySet().toArray(new String[0]);
+		final String[] outputs = new String[program.formulas.size()];
+		for (int o = 0; o < outputs.length; o++) {
+			outputs[o] = program.formulas.get(o).outputVar.identifier;
+		}
+		try {
+			final Class<?> c = new Loader().define(bytes);
+			return (Simulator) c.getDeclaredConstructor(String[].class, String[].class).newInstance(inputs, outputs);
+		} catch (final ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Count the references to each subterm, and number the inputs. */
+	private void count(final Expr e) {
+		final Integer n = references.get(e);
+		if (n != null) {
+			references.put(e, n + 1);
+			return;
+		}
+		references.put(e, 1);
+		if (e instanceof VarExpr) {
+			final String name = ((VarExpr) e).identifier;
+			if (!inputs.containsKey(name)) {
+				inputs.put(name, nextLocal);
+				nextLocal += 2;
+			}
+		} else if (e instanceof UnaryExpr) {
+			count(((UnaryExpr) e).expr);
+		} else if (e instanceof BinaryExpr) {
+			count(((BinaryExpr) e).left);
+			count(((BinaryExpr) e).right);
+		} else if (e instanceof NaryExpr) {
+			for (final Expr c : ((NaryExpr) e).children) {
+				count(c);
+			}
+		}
+	}
+
+	private byte[] generate(final FProgram program) {
+		final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, NAME, null, SUPER, null);
+
+		// constructor: pass the names to WordSimulator
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER, "<init>", CONSTRUCTOR, false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// protected void step(long[] in, long[] out)
+		mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "step", "([J[J)V", null, null);
+		mv.visitCode();
+		int i = 0;
+		for (final int local : inputs.values()) {
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			push(i++);
+			mv.visitInsn(Opcodes.LALOAD);
+			mv.visitVarInsn(Opcodes.LSTORE, local);
+		}
+		for (int o = 0; o < program.formulas.size(); o++) {
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			push(o);
+			emit(program.formulas.get(o).expr);
+			mv.visitInsn(Opcodes.LASTORE);
+		}
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private void push(final int n) {
+		if (n <= 5) {
+			mv.visitInsn(Opcodes.ICONST_0 + n);
+		} else if (n <= Short.MAX_VALUE) {
+			mv.visitIntInsn(Opcodes.SIPUSH, n);
+		} else {
+			mv.visitLdcInsn(n);
+		}
+	}
+
+	/** Leave the value of e on the stack, computing it only once if it is shared. */
+	private void emit(final Expr e) {
+		final Integer local = locals.get(e);
+		if (local != null) {
+			mv.visitVarInsn(Opcodes.LLOAD, local);
+			return;
+		}
+		traverseExpr(e);
+		if (references.get(e) > 1 && !(e instanceof VarExpr) && !(e instanceof ConstantExpr)) {
+			mv.visitInsn(Opcodes.DUP2);
+			mv.visitVarInsn(Opcodes.LSTORE, nextLocal);
+			locals.put(e, nextLocal);
+			nextLocal += 2;
+		}
+	}
+
+	private void complement() {
+		mv.visitLdcInsn(-1L);
+		mv.visitInsn(Opcodes.LXOR);
+	}
+
+	@Override
+	public Expr traverseNaryExpr(final NaryExpr e) {
+		final boolean and = e instanceof NaryAndExpr;
+		if (e.children.isEmpty()) {
+			// the identity element
+			mv.visitLdcInsn(and ? -1L : 0L);
+			return e;
+		}
+		emit(e.children.get(0));
+		for (int i = 1; i < e.children.size(); i++) {
+			emit(e.children.get(i));
+			mv.visitInsn(and ? Opcodes.LAND : Opcodes.LOR);
+		}
+		return e;
+	}
+
+	@Override
+	public Expr traverseBinaryExpr(final BinaryExpr e) {
+		emit(e.left);
+		emit(e.right);
+		if (e instanceof AndExpr || e instanceof NAndExpr) {
+			mv.visitInsn(Opcodes.LAND);
+		} else if (e instanceof OrExpr || e instanceof NOrExpr) {
+			mv.visitInsn(Opcodes.LOR);
+		} else {
+			mv.visitInsn(Opcodes.LXOR);
+		}
+		// nand, nor, xnor and = are the complements of and, or, xor
+		if (e instanceof NAndExpr || e instanceof NOrExpr || e instanceof XNOrExpr || e instanceof EqualExpr) {
+			complement();
+		}
+		return e;
+	}
+
+	@Override
+	public Expr traverseUnaryExpr(final UnaryExpr e) {
+		// the only unary expression is not
+		emit(e.expr);
+		complement();
+		return e;
+	}
+
+	@Override
+	public Expr visitConstant(final ConstantExpr e) {
+		if (e.b) {
+			mv.visitLdcInsn(-1L);
+		} else {
+			mv.visitInsn(Opcodes.LCONST_0);
+		}
+		return e;
+	}
+
+	@Override
+	public Expr visitVar(final VarExpr e) {
+		mv.visitVarInsn(Opcodes.LLOAD, inputs.get(e.identifier));
+		return e;
+	}
+
+	// the operators are written by the traverse methods
+	@Override public Expr visitNot(final NotExpr e) { return e; }
+	@Override public Expr visitAnd(final AndExpr e) { return e; }
+	@Override public Expr visitOr(final OrExpr e) { return e; }
+	@Override public Expr visitNaryAnd(final NaryAndExpr e) { return e; }
+	@Override public Expr visitNaryOr(final NaryOrExpr e) { return e; }
+	@Override public Expr visitNOr(final NOrExpr e) { return e; }
+	@Override public Expr visitXOr(final XOrExpr e) { return e; }
+	@Override public Expr visitXNOr(final XNOrExpr e) { return e; }
+	@Override public Expr visitNAnd(final NAndExpr e) { return e; }
+	@Override public Expr visitEqual(final EqualExpr e) { return e; }
+
+}
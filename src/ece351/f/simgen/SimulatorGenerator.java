@@ -27,7 +27,14 @@
 package ece351.f.simgen;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
@@ -52,11 +59,57 @@ import ece351.f.analysis.DetermineInputVars;
 import ece351.f.ast.FProgram;
 import ece351.util.CommandLine;
 
+/**
+ * Generates a Java program that simulates an F program on the 
+ * waveforms of a W program.
+ * 
+ * By default the simulator computes one boolean per output per time 
+ * step. The input waveforms are read once, into boolean arrays, before
+ * the loop over time steps. With words, it packs each input waveform 
+ * into longs, 64 time steps per word, and the output methods are 
+ * straight-line bitwise operations on words, so each operation 
+ * simulates 64 time steps.
+ * 
+ * generate() writes the source of the simulator. compile() also 
+ * compiles it in memory and returns a ready Simulator.
+ */
 public final class SimulatorGenerator extends ExprVisitor {
 
 	private PrintWriter out = new PrintWriter(System.out);
 	private String indent = "";
 
+	/** Whether to simulate 64 time steps per word. */
+	private final boolean words;
+
+	public SimulatorGenerator() {
+		this(false);
+	}
+
+	public SimulatorGenerator(final boolean words) {
+		this.words = words;
+	}
+
+	/** Number of simulator classes that compile() keeps loaded. */
+	static final int COMPILED_CAPACITY = 256;
+
+	/** 
+	 * The most recently used simulator classes compiled by compile(), 
+	 * by key(). Each class has its own class loader, which can be 
+	 * collected once the class is evicted and its simulators are gone.
+	 * Guarded by itself.
+	 */
+	private static final Map<String,Class<? extends Simulator>> COMPILED = 
+			new LinkedHashMap<String,Class<? extends Simulator>>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String,Class<? extends Simulator>> eldest) {
+					return size() > COMPILED_CAPACITY;
+				}
+			};
+
+	/** Number of times compile() has run javac. */
+	private static final AtomicInteger compilations = new AtomicInteger();
+
 	public static void main(final String arg) {
 		main(new String[]{arg});
 	}
@@ -90,6 +143,61 @@ public final class SimulatorGenerator extends ExprVisitor {
 		indent = indent.substring(0, indent.length() - 4);
 	}
 	
+	/**
+	 * A simulator for the program, compiled and loaded in memory. The 
+	 * compiled class is cached by a hash of the program, so simulating
+	 * a recently simulated program again does not run javac.
+	 */
+	public Simulator compile(final FProgram program) {
+		final String key = key(program);
+		Class<? extends Simulator> c;
+		synchronized (COMPILED) {
+			c = COMPILED.get(key);
+		}
+		if (c == null) {
+			final String name = key.substring(0, 16);
+			final StringWriter sw = new StringWriter();
+			new SimulatorGenerator(words).generate(name, program, new PrintWriter(sw));
+			c = MemoryCompiler.compile("Simulator_" + name, sw.toString()).asSubclass(Simulator.class);
+			compilations.incrementAndGet();
+			// javac runs outside the lock, so another thread might have compiled it too
+			synchronized (COMPILED) {
+				final Class<? extends Simulator> previous = COMPILED.putIfAbsent(key, c);
+				if (previous != null) {
+					c = previous;
+				}
+			}
+		}
+		try {
+			return c.getDeclaredConstructor().newInstance();
+		} catch (final ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** The SHA-256 of the program text and the mode, in hex. */
+	private String key(final FProgram program) {
+		try {
+			final MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			sha.update((words ? "words" : "booleans").getBytes(StandardCharsets.UTF_8));
+			sha.update((byte) '\n');
+			sha.update(program.toString().getBytes(StandardCharsets.UTF_8));
+			final StringBuilder b = new StringBuilder(64);
+			for (final byte x : sha.digest()) {
+				b.append(Character.forDigit((x >> 4) & 0xF, 16));
+				b.append(Character.forDigit(x & 0xF, 16));
+			}
+			return b.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Number of times compile() has run javac. */
+	public static int compilations() {
+		return compilations.get();
+	}
+
 	public void generate(final String fName, final FProgram program, final PrintWriter out) {
 		this.out = out;
 		final String cleanFName = fName.replace('-', '_');
@@ -107,7 +215,7 @@ public final class SimulatorGenerator extends ExprVisitor {
 		println("import java.io.IOException;");
 		println("import ece351.util.Debug;");
 		println();
-		println("public final class Simulator_" + cleanFName + " {");
+		println("public final class Simulator_" + cleanFName + " implements ece351.f.simgen.Simulator {");
 		indent();
 		println("public static void main(final String[] args) {");
 		indent();
@@ -118,33 +226,7 @@ public final class SimulatorGenerator extends ExprVisitor {
 		println("final CommandLine cmd = new CommandLine(args);");
 		println("final String input = cmd.readInputSpec();");
 		println("final WProgram wprogram = WParboiledParser.parse(input);");
-		
-		println("// construct storage for output");
-		println("final Map<String,StringBuilder> output = new LinkedHashMap<String,StringBuilder>();");
-		for (AssignmentStatement assignmentStatement : program.formulas) {
-			println("output.put(\"" + assignmentStatement.outputVar.identifier + "\", new StringBuilder());");
-		}
-		
-		println("// loop over each time step");
-		println("final int timeCount = wprogram.timeCount();");
-		println("for (int time = 0; time < timeCount; time++) {");
-		indent();
-		println("// values of input variables at this time step");
-		Set<String> programInputVars = DetermineInputVars.inputVars(program);
-		for (String inputVar : programInputVars) {
-			println("final boolean in_" + inputVar + " = wprogram.valueAtTime(\"" + inputVar + "\", time);");
-		}
-		println("// values of output variables at this time step");
-		for (AssignmentStatement assignmentStatement : program.formulas) {
-			println("final String out_" + assignmentStatement.outputVar.identifier + " = " + generateCall(assignmentStatement) + " ? \"1\" : \"0\";");
-		}
-		println("// store outputs");
-		for (AssignmentStatement assignmentStatement : program.formulas) {
-			println("output.get(\"" + assignmentStatement.outputVar.identifier + "\").append(out_" + assignmentStatement.outputVar.identifier + ");");
-		}
-		// end the time step loop
-		outdent();
-		println("}");
+		println("final Map<String,StringBuilder> output = run(wprogram);");
 		
 		println("try {");
 		indent();
@@ -173,7 +255,27 @@ public final class SimulatorGenerator extends ExprVisitor {
 		// end main method
 		outdent();
 		println("}");
+
+		println("@Override");
+		println("public WProgram simulate(final WProgram wprogram) {");
+		indent();
+		println("return ece351.f.simgen.Simulator.waves(run(wprogram));");
+		outdent();
+		println("}");
+
+		println("// compute the output waves");
+		println("public static Map<String,StringBuilder> run(final WProgram wprogram) {");
+		indent();
+		if (words) {
+			generateWordLoop(program);
+		} else {
+			generateLoop(program);
+		}
+		println("return output;");
+		outdent();
+		println("}");
 		
+		generateHelpers();
 		println("// methods to compute values for output pins");
 		for (AssignmentStatement assignmentStatement : program.formulas) {
 			print(indent);
@@ -189,8 +291,143 @@ public final class SimulatorGenerator extends ExprVisitor {
 
 	}
 
+	private void generateLoop(final FProgram program) {
+		println("// construct storage for output");
+		println("final Map<String,StringBuilder> output = new LinkedHashMap<String,StringBuilder>();");
+		println("final int timeCount = wprogram.timeCount();");
+		for (AssignmentStatement assignmentStatement : program.formulas) {
+			final String id = assignmentStatement.outputVar.identifier;
+			println("final StringBuilder wave_" + id + " = new StringBuilder(timeCount);");
+			println("output.put(\"" + id + "\", wave_" + id + ");");
+		}
+		
+		println("// resolve each input waveform once");
+		Set<String> programInputVars = DetermineInputVars.inputVars(program);
+		for (String inputVar : programInputVars) {
+			println("final boolean[] column_" + inputVar + " = column(wprogram, \"" + inputVar + "\", timeCount);");
+		}
+		println("// loop over each time step");
+		println("for (int time = 0; time < timeCount; time++) {");
+		indent();
+		println("// values of input variables at this time step");
+		for (String inputVar : programInputVars) {
+			println("final boolean in_" + inputVar + " = column_" + inputVar + "[time];");
+		}
+		println("// values of output variables at this time step");
+		for (AssignmentStatement assignmentStatement : program.formulas) {
+			println("final String out_" + assignmentStatement.outputVar.identifier + " = " + generateCall(assignmentStatement) + " ? \"1\" : \"0\";");
+		}
+		println("// store outputs");
+		for (AssignmentStatement assignmentStatement : program.formulas) {
+			println("wave_" + assignmentStatement.outputVar.identifier + ".append(out_" + assignmentStatement.outputVar.identifier + ");");
+		}
+		// end the time step loop
+		outdent();
+		println("}");
+	}
+
+	private void generateWordLoop(final FProgram program) {
+		println("// pack the input waveforms, 64 time steps per word");
+		println("final int timeCount = wprogram.timeCount();");
+		println("final int wordCount = (timeCount + 63) >>> 6;");
+		for (final String inputVar : DetermineInputVars.inputVars(program)) {
+			println("final long[] in_" + inputVar + " = pack(wprogram, \"" + inputVar + "\", timeCount);");
+		}
+		println("// construct storage for output");
+		for (final AssignmentStatement a : program.formulas) {
+			println("final long[] out_" + a.outputVar.identifier + " = new long[wordCount];");
+		}
+		println("// loop over each word of time steps");
+		println("for (int w = 0; w < wordCount; w++) {");
+		indent();
+		for (final AssignmentStatement a : program.formulas) {
+			println("out_" + a.outputVar.identifier + "[w] = " + generateCall(a) + ";");
+		}
+		outdent();
+		println("}");
+		println("// unpack outputs");
+		println("final Map<String,StringBuilder> output = new LinkedHashMap<String,StringBuilder>();");
+		for (final AssignmentStatement a : program.formulas) {
+			println("output.put(\"" + a.outputVar.identifier + "\", unpack(out_" + a.outputVar.identifier + ", timeCount));");
+		}
+	}
+
+	private void generateHelpers() {
+		println("private static Waveform waveform(final WProgram wprogram, final String var) {");
+		indent();
+		println("final Waveform waveform = wprogram.waveform(var);");
+		println("if (waveform == null) {");
+		indent();
+		println("throw new IllegalArgumentException(\"variable is not defined in W program: \" + var);");
+		outdent();
+		println("}");
+		println("return waveform;");
+		outdent();
+		println("}");
+		if (words) {
+			generateWordHelpers();
+		} else {
+			println("// the values of a waveform, so the loop does not look them up by name");
+			println("private static boolean[] column(final WProgram wprogram, final String var, final int timeCount) {");
+			indent();
+			println("final Waveform waveform = waveform(wprogram, var);");
+			println("final boolean[] values = new boolean[timeCount];");
+			println("for (int time = 0; time < timeCount; time++) {");
+			indent();
+			println("values[time] = waveform.bits.get(time).equals(\"1\");");
+			outdent();
+			println("}");
+			println("return values;");
+			outdent();
+			println("}");
+		}
+	}
+
+	private void generateWordHelpers() {
+		println("// bit t % 64 of word t / 64 is the value at time step t");
+		println("private static long[] pack(final WProgram wprogram, final String var, final int timeCount) {");
+		indent();
+		println("final long[] words = new long[(timeCount + 63) >>> 6];");
+		println("final Waveform waveform = waveform(wprogram, var);");
+		println("for (int time = 0; time < timeCount; time++) {");
+		indent();
+		println("if (waveform.bits.get(time).equals(\"1\")) {");
+		indent();
+		println("words[time >>> 6] |= 1L << time;");
+		outdent();
+		println("}");
+		outdent();
+		println("}");
+		println("return words;");
+		outdent();
+		println("}");
+		println("private static StringBuilder unpack(final long[] words, final int timeCount) {");
+		indent();
+		println("final StringBuilder b = new StringBuilder(timeCount);");
+		println("for (int time = 0; time < timeCount; time++) {");
+		indent();
+		println("b.append((words[time >>> 6] >>> time & 1L) != 0 ? '1' : '0');");
+		outdent();
+		println("}");
+		println("return b;");
+		outdent();
+		println("}");
+	}
+
 	@Override
 	public Expr traverseNaryExpr(final NaryExpr e) {
+		if (words) {
+			final String op = e instanceof NaryAndExpr ? " & " : " | ";
+			out.print("(");
+			for (int i = 0; i < e.children.size(); i++) {
+				if (i > 0) {
+					out.print(op);
+				}
+				traverseExpr(e.children.get(i));
+			}
+			out.print(")");
+			return e;
+		}
 		e.accept(this);
 		final int size = e.children.size();
 		for (int i = 0; i < size; i++) {
@@ -207,6 +444,25 @@ public final class SimulatorGenerator extends ExprVisitor {
 
 	@Override
 	public Expr traverseBinaryExpr(final BinaryExpr e) {
+		if (words) {
+			// nand, nor, xnor and = are the complements of and, or, xor
+			final boolean complement = e instanceof NAndExpr || e instanceof NOrExpr 
+					|| e instanceof XNOrExpr || e instanceof EqualExpr;
+			final String op;
+			if (e instanceof AndExpr || e instanceof NAndExpr) {
+				op = " & ";
+			} else if (e instanceof OrExpr || e instanceof NOrExpr) {
+				op = " | ";
+			} else {
+				op = " ^ ";
+			}
+			out.print(complement ? "~(" : "(");
+			traverseExpr(e.left);
+			out.print(op);
+			traverseExpr(e.right);
+			out.print(")");
+			return e;
+		}
 		e.accept(this);
 		traverseExpr(e.left);
 		out.print(", ");
@@ -217,6 +473,12 @@ public final class SimulatorGenerator extends ExprVisitor {
 
 	@Override
 	public Expr traverseUnaryExpr(final UnaryExpr e) {
+		if (words) {
+			// the only unary expression is not
+			out.print("~");
+			traverseExpr(e.expr);
+			return e;
+		}
 		e.accept(this);
 		traverseExpr(e.expr);
 		out.print(") ");
@@ -225,6 +487,10 @@ public final class SimulatorGenerator extends ExprVisitor {
 
 	@Override
 	public Expr visitConstant(final ConstantExpr e) {
+		if (words) {
+			out.print(e.b ? "-1L" : "0L");
+			return e;
+		}
 		out.print(Boolean.toString(e.b));
 		return e;
 	}
@@ -262,10 +528,13 @@ public final class SimulatorGenerator extends ExprVisitor {
 
 	private String generateList(final AssignmentStatement f, final boolean signature) {
 		final StringBuilder b = new StringBuilder();
+		final String type = words ? "long" : "boolean";
 		String prefix = "in_";
+		String suffix = words ? "[w]" : "";
 		if (signature) {
-			b.append("public static boolean ");
-			prefix = "final boolean ";
+			b.append("public static " + type + " ");
+			prefix = "final " + type + " ";
+			suffix = "";
 		}
 		b.append(f.outputVar);
 		b.append("(");
@@ -274,11 +543,11 @@ public final class SimulatorGenerator extends ExprVisitor {
 		boolean first = true;
 		for (String inputVar : inputVars) {
 			if (first) {
-				b.append(prefix + inputVar);
+				b.append(prefix + inputVar + suffix);
 				first = false;
 			} else {
 				b.append(", ");
-				b.append(prefix + inputVar);
+				b.append(prefix + inputVar + suffix);
 			}
 		}
 		b.append(")");
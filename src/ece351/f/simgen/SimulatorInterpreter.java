@@ -0,0 +1,196 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ece351.common.ast.AndExpr;
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.EqualExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NAndExpr;
+import ece351.common.ast.NOrExpr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.OrExpr;
+import ece351.common.ast.VarExpr;
+import ece351.common.ast.XNOrExpr;
+import ece351.common.ast.XOrExpr;
+import ece351.f.ast.FProgram;
+
+/**
+ * Makes a simulator that interprets the program, for simulations too 
+ * short to pay for generating and loading a class (see 
+ * SimulatorGenerator and SimulatorAssembler).
+ * 
+ * The program is turned once into a list of operations over a flat 
+ * array of registers, one register per distinct subterm, with the 
+ * operands of each operation before it. Each operation is bound to its
+ * operator and to the registers of its operands, so that simulating 
+ * does no dispatch on Expr classes and no lookups by name. Like the 
+ * compiled simulators, the operations compute 64 time steps per word.
+ * Each step runs every operation once, so a shared subterm is computed
+ * once per word, however many paths lead to it.
+ */
+public final class SimulatorInterpreter {
+
+	/** Computes one word of a register from the input words and the registers before it. */
+	private interface Op {
+		long eval(final long[] in, final long[] regs);
+	}
+
+	private static final class Interpreted extends WordSimulator {
+		private final Op[] ops;
+		/** The register of each output. */
+		private final int[] outputs;
+		Interpreted(final String[] inputs, final String[] outputs, final Op[] ops, final int[] registers) {
+			super(inputs, outputs);
+			this.ops = ops;
+			this.outputs = registers;
+		}
+		@Override
+		protected void step(final long[] in, final long[] out) {
+			final long[] regs = new long[ops.length];
+			for (int i = 0; i < ops.length; i++) {
+				regs[i] = ops[i].eval(in, regs);
+			}
+			for (int o = 0; o < outputs.length; o++) {
+				out[o] = regs[outputs[o]];
+			}
+		}
+	}
+
+	/** Position of each input in the words given to Op.eval(). */
+	private final Map<String,Integer> inputs = new LinkedHashMap<String,Integer>();
+	/** The register of each subterm: the index of its operation in ops. */
+	private final Map<Expr,Integer> registers = new HashMap<Expr,Integer>();
+	private final List<Op> ops = new ArrayList<Op>();
+
+	private SimulatorInterpreter() {}
+
+	/**
+	 * A simulator that interprets the program.
+	 */
+	public static Simulator interpret(final FProgram program) {
+		final SimulatorInterpreter i = new SimulatorInterpreter();
+		final String[] outputs = new String[program.formulas.size()];
+		final int[] roots = new int[outputs.length];
+		for (int o = 0; o < outputs.length; o++) {
+			final AssignmentStatement f = program.formulas.get(o);
+			outputs[o] = f.outputVar.identifier;
+			roots[o] = i.register(f.expr);
+		}
+		return new Interpreted(i.inputs.keySet().toArray(new String[0]), outputs, i.ops.toArray(new Op[0]), roots);
+	}
+
+	/** The register of e, after those of its operands. */
+	private int register(final Expr e) {
+		final Integer known = registers.get(e);
+		if (known != null) {
+			return known;
+		}
+		final Op op;
+		if (e instanceof ConstantExpr) {
+			final long value = ((ConstantExpr) e).b ? -1L : 0L;
+			op = (in, regs) -> value;
+		} else if (e instanceof VarExpr) {
+			final String name = ((VarExpr) e).identifier;
+			Integer position = inputs.get(name);
+			if (position == null) {
+				position = inputs.size();
+				inputs.put(name, position);
+			}
+			final int p = position;
+			op = (in, regs) -> in[p];
+		} else if (e instanceof NotExpr) {
+			final int c = register(((NotExpr) e).expr);
+			op = (in, regs) -> ~regs[c];
+		} else if (e instanceof AndExpr) {
+			final int l = register(((AndExpr) e).left), r = register(((AndExpr) e).right);
+			op = (in, regs) -> regs[l] & regs[r];
+		} else if (e instanceof OrExpr) {
+			final int l = register(((OrExpr) e).left), r = register(((OrExpr) e).right);
+			op = (in, regs) -> regs[l] | regs[r];
+		} else if (e instanceof NAndExpr) {
+			final int l = register(((NAndExpr) e).left), r = register(((NAndExpr) e).right);
+			op = (in, regs) -> ~(regs[l] & regs[r]);
+		} else if (e instanceof NOrExpr) {
+			final int l = register(((NOrExpr) e).left), r = register(((NOrExpr) e).right);
+			op = (in, regs) -> ~(regs[l] | regs[r]);
+		} else if (e instanceof XOrExpr) {
+			final int l = register(((XOrExpr) e).left), r = register(((XOrExpr) e).right);
+			op = (in, regs) -> regs[l] ^ regs[r];
+		} else if (e instanceof XNOrExpr) {
+			final int l = register(((XNOrExpr) e).left), r = register(((XNOrExpr) e).right);
+			op = (in, regs) -> ~(regs[l] ^ regs[r]);
+		} else if (e instanceof EqualExpr) {
+			final int l = register(((EqualExpr) e).left), r = register(((EqualExpr) e).right);
+			op = (in, regs) -> ~(regs[l] ^ regs[r]);
+		} else if (e instanceof NaryAndExpr) {
+			final int[] cs = children((NaryExpr) e);
+			op = (in, regs) -> {
+				long v = -1L;
+				for (final int c : cs) {
+					v &= regs[c];
+				}
+				return v;
+			};
+		} else if (e instanceof NaryOrExpr) {
+			final int[] cs = children((NaryExpr) e);
+			op = (in, regs) -> {
+				long v = 0L;
+				for (final int c : cs) {
+					v |= regs[c];
+				}
+				return v;
+			};
+		} else {
+			throw new IllegalArgumentException("cannot interpret " + e.getClass().getSimpleName());
+		}
+		final int result = ops.size();
+		ops.add(op);
+		registers.put(e, result);
+		return result;
+	}
+
+	private int[] children(final NaryExpr e) {
+		final int[] cs = new int[e.children.size()];
+		for (int i = 0; i < cs.length; i++) {
+			cs[i] = register(e.children.get(i));
+		}
+		return cs;
+	}
+
+}
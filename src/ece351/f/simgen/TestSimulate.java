@@ -0,0 +1,84 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import ece351.f.ast.FProgram;
+import ece351.util.BaseTest351;
+import ece351.w.ast.WProgram;
+import ece351.w.parboiled.WParboiledParser;
+
+public class TestSimulate extends BaseTest351 {
+
+	@Test
+	public void testChoice() {
+		final FProgram p = fprogram("x <= a and b;");
+		final Class<?> shortRun = Simulate.simulator(p, 100).getClass();
+		final Class<?> longRun = Simulate.simulator(p, Simulate.INTERPRET_TIME_STEPS + 1).getClass();
+		assertNotEquals(shortRun, longRun);
+		assertEquals(shortRun, SimulatorInterpreter.interpret(p).getClass());
+	}
+
+	@Test(timeout = 10000)
+	public void testSharedSubterms() {
+		// 2^40 paths, but each level is computed once per word
+		final int depth = 40;
+		final FProgram p = program(chain(depth));
+		final StringBuilder w = new StringBuilder("a0: 0 1;");
+		for (int k = 1; k <= depth; k++) {
+			// e(k) = e(k-1) when a(k) is 1 and b(k) is 0
+			w.append(" a").append(k).append(": 1 1; b").append(k).append(": 0 0;");
+		}
+		final WProgram output = SimulatorInterpreter.interpret(p).simulate(WParboiledParser.parse(w.toString()));
+		assertEquals("0", output.waveformAtTime("x", 0));
+		assertEquals("1", output.waveformAtTime("x", 1));
+	}
+
+	@Test
+	public void testMain() throws IOException {
+		final File out = File.createTempFile("simulate", ".wave");
+		try {
+			Simulate.main(new String[]{"-h", "-v0", "x <= a or b;", "a: 0 1 0 1; b: 0 0 1 1;", "-f", out.getPath()});
+			final String s = new String(Files.readAllBytes(out.toPath()), StandardCharsets.UTF_8);
+			// the format of the generated simulators
+			assertEquals("x:0111;", s.trim().substring(s.trim().lastIndexOf('\n') + 1));
+		} finally {
+			out.delete();
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import ece351.f.FParser;
+import ece351.f.analysis.DetermineInputVars;
+import ece351.f.ast.FProgram;
+import ece351.util.CommandLine;
+import ece351.util.TestInputs351;
+import ece351.w.ast.WProgram;
+import ece351.w.ast.Waveform;
+import ece351.w.parboiled.WParboiledParser;
+
+/**
+ * The assembled simulators must compute the same waves as the staff 
+ * simulators, without javac.
+ */
+@RunWith(Parameterized.class)
+public class TestSimulatorAssembler {
+
+	private final File input;
+
+	public TestSimulatorAssembler(final File f) {
+		this.input = f;
+	}
+
+	@Parameterized.Parameters
+	public static Collection<Object[]> files() {
+		return TestInputs351.formulaFiles();
+	}
+
+	/** The simulator under test. */
+	protected Simulator simulator(final FProgram program) {
+		return SimulatorAssembler.assemble(program);
+	}
+
+	@Test
+	public void simulate() {
+		final String inputSpec = input.getAbsolutePath();
+		if (inputSpec.contains("jvarty") || inputSpec.contains("opt4") || inputSpec.contains("opt5")) {
+			// skipped by TestSimulatorGenerator too: no waves for these
+			return;
+		}
+		final FProgram program = FParser.parse(new CommandLine("-p", inputSpec));
+		assertTrue(program.repOk());
+
+		// the wave named after the input variables, as in TestSimulatorGenerator
+		final Set<String> inputVars = DetermineInputVars.inputVars(program);
+		final StringBuilder waveName = new StringBuilder("tests/wave/");
+		for (final String s : inputVars) {
+			waveName.append(s);
+		}
+		if (inputVars.isEmpty()) {
+			waveName.append("r1");
+		}
+		waveName.append(".wave");
+		final String sep = File.separator;
+		final String staffWavePath = inputSpec
+				.replace(sep + "f" + sep, sep + "f" + sep + "staff.out" + sep + "simulator" + sep)
+				.replace(".f", ".wave");
+
+		final WProgram waves = WParboiledParser.parse(new CommandLine(waveName.toString()).readInputSpec());
+		final WProgram staff = WParboiledParser.parse(new CommandLine(staffWavePath).readInputSpec());
+		final WProgram output = simulator(program).simulate(waves);
+		assertEquals(program.formulas.size(), output.waveforms.size());
+		for (final Waveform w : output.waveforms) {
+			assertEquals("wave " + w.name + " of " + inputSpec, staff.waveform(w.name).bits, w.bits);
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import ece351.f.ast.FProgram;
+import ece351.util.BaseTest351;
+import ece351.w.ast.WProgram;
+import ece351.w.parboiled.WParboiledParser;
+
+public class TestSimulatorCompiler extends BaseTest351 {
+
+	/** 70 time steps: more than one word. */
+	private static final WProgram INPUT;
+	static {
+		final StringBuilder a = new StringBuilder("A:");
+		final StringBuilder b = new StringBuilder("B:");
+		for (int t = 0; t < 70; t++) {
+			a.append(t % 2 == 0 ? " 0" : " 1");
+			b.append(t % 3 == 0 ? " 1" : " 0");
+		}
+		INPUT = WParboiledParser.parse(a + ";" + System.lineSeparator() + b + ";");
+	}
+
+	private static String expected(final int t) {
+		final boolean a = t % 2 != 0;
+		final boolean b = t % 3 == 0;
+		return (a ^ b) ? "1" : "0";
+	}
+
+	@Test
+	public void testSimulate() {
+		final FProgram p = fprogram("X <= (A and not B) or (not A and B); Y <= not (A or '0');");
+		for (final boolean words : new boolean[]{false, true}) {
+			final WProgram output = new SimulatorGenerator(words).compile(p).simulate(INPUT);
+			assertEquals(2, output.waveforms.size());
+			assertEquals("X", output.waveforms.get(0).name);
+			assertEquals(70, output.timeCount());
+			for (int t = 0; t < 70; t++) {
+				assertEquals(expected(t), output.waveformAtTime("X", t));
+				assertEquals(t % 2 != 0 ? "0" : "1", output.waveformAtTime("Y", t));
+			}
+		}
+	}
+
+	@Test
+	public void testCache() {
+		final String program = "Z <= A and B or not A;";
+		final Simulator s1 = new SimulatorGenerator().compile(fprogram(program));
+		final int compilations = SimulatorGenerator.compilations();
+		// the same program, parsed again: no need for javac
+		final Simulator s2 = new SimulatorGenerator().compile(fprogram(program));
+		assertEquals(compilations, SimulatorGenerator.compilations());
+		assertNotSame(s1, s2);
+		assertSame(s1.getClass(), s2.getClass());
+		// the other mode is a different class
+		new SimulatorGenerator(true).compile(fprogram(program));
+		assertEquals(compilations + 1, SimulatorGenerator.compilations());
+	}
+
+}
@@ -108,7 +108,7 @@ public class TestSimulatorGenerator extends BaseTest351 {
 
 		// generate the Java output
 		final StringWriter sw = new StringWriter();
-		final SimulatorGenerator sg = new SimulatorGenerator();
+		final SimulatorGenerator sg = generator();
 		sg.generate(c.getInputName(), original, new PrintWriter(sw));
 		sw.close();
 		final String javasim = sw.toString();
@@ -185,6 +185,11 @@ public class TestSimulatorGenerator extends BaseTest351 {
 		System.out.println("Success! " + inputSpec);
 	}
 
+	/** The generator under test. */
+	protected SimulatorGenerator generator() {
+		return new SimulatorGenerator();
+	}
+
 	protected void computeFileNames(final String inputSpec, final FProgram fp) {
 		// determine the name of the wave input to use for this formula
 		final Set<String> inputVars = DetermineInputVars.inputVars(fp);
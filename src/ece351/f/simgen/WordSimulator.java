@@ -0,0 +1,107 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.f.simgen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ece351.w.ast.WProgram;
+import ece351.w.ast.Waveform;
+
+/**
+ * A simulator that computes 64 time steps at a time: bit t % 64 of 
+ * word t / 64 of a waveform is its value at time step t. Subclasses 
+ * say how to compute the output words from the input words; this 
+ * class packs the input waveforms and unpacks the outputs.
+ * 
+ * Public, with a protected constructor, because SimulatorAssembler 
+ * loads its subclasses in class loaders of their own.
+ */
+public abstract class WordSimulator implements Simulator {
+
+	/** Names of the inputs, in the order of the words given to step(). */
+	private final String[] inputs;
+	/** Names of the outputs, in the order of the words step() computes. */
+	private final String[] outputs;
+
+	protected WordSimulator(final String[] inputs, final String[] outputs) {
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
+	/**
+	 * Compute one word of each output from one word of each input.
+	 */
+	protected abstract void step(final long[] in, final long[] out);
+
+	@Override
+	public final WProgram simulate(final WProgram input) {
+		final int timeCount = input.timeCount();
+		final int wordCount = (timeCount + 63) >>> 6;
+		final long[][] columns = new long[inputs.length][];
+		for (int i = 0; i < inputs.length; i++) {
+			columns[i] = pack(input, inputs[i], timeCount);
+		}
+		final long[][] results = new long[outputs.length][wordCount];
+		final long[] in = new long[inputs.length];
+		final long[] out = new long[outputs.length];
+		for (int w = 0; w < wordCount; w++) {
+			for (int i = 0; i < in.length; i++) {
+				in[i] = columns[i][w];
+			}
+			step(in, out);
+			for (int o = 0; o < out.length; o++) {
+				results[o][w] = out[o];
+			}
+		}
+		final Map<String,StringBuilder> output = new LinkedHashMap<String,StringBuilder>();
+		for (int o = 0; o < outputs.length; o++) {
+			final StringBuilder b = new StringBuilder(timeCount);
+			for (int time = 0; time < timeCount; time++) {
+				b.append((results[o][time >>> 6] >>> time & 1L) != 0 ? '1' : '0');
+			}
+			output.put(outputs[o], b);
+		}
+		return Simulator.waves(output);
+	}
+
+	private static long[] pack(final WProgram wprogram, final String var, final int timeCount) {
+		final Waveform waveform = wprogram.waveform(var);
+		if (waveform == null) {
+			throw new IllegalArgumentException("variable is not defined in W program: " + var);
+		}
+		final long[] words = new long[(timeCount + 63) >>> 6];
+		for (int time = 0; time < timeCount; time++) {
+			if (waveform.bits.get(time).equals("1")) {
+				words[time >>> 6] |= 1L << time;
+			}
+		}
+		return words;
+	}
+
+}
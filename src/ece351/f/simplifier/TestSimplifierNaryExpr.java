@@ -29,15 +29,24 @@ package ece351.f.simplifier;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.EnumSet;
+
 import org.junit.Test;
 
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.Expr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.NaryAndExpr;
 import ece351.common.ast.NaryExpr;
 import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.Simplifier;
 import ece351.common.ast.VarExpr;
+import ece351.common.ast.XNOrExpr;
+import ece351.common.ast.XOrExpr;
 import ece351.util.BaseTest351;
+import ece351.util.CommandLine;
+import ece351.util.CommandLine.FSimplifierOptions;
 
 public class TestSimplifierNaryExpr extends BaseTest351 {
 
@@ -81,4 +90,117 @@ public class TestSimplifierNaryExpr extends BaseTest351 {
 		assertEquals(new NaryAndExpr(new VarExpr("a"), new VarExpr("b")), result);
 	}
 
+	@Test
+	public void testComplement() {
+		final VarExpr x = new VarExpr("x");
+		final NaryExpr e = new NaryAndExpr(new VarExpr("y"), new NotExpr(new NaryOrExpr(x, new VarExpr("z"))), new NaryOrExpr(new VarExpr("z"), x));
+		assertTrue(e.repOk());
+		final Expr result = e.simplify();
+		assertTrue(result.repOk());
+		assertEquals(ConstantExpr.FalseExpr, result);
+	}
+
+	@Test
+	public void testDuplicates() {
+		final Expr xy = new NaryAndExpr(new VarExpr("x"), new VarExpr("y"));
+		final NaryExpr e = new NaryOrExpr(xy, new VarExpr("z"), new NaryAndExpr(new VarExpr("y"), new VarExpr("x")));
+		final Expr result = e.simplify();
+		assertTrue(result.repOk());
+		assertEquals(new NaryOrExpr(xy, new VarExpr("z")), result);
+	}
+
+	@Test
+	public void testTruthTableComplement() {
+		// x xor y is the complement of x xnor y, but not syntactically
+		final Expr x = new VarExpr("x");
+		final Expr y = new VarExpr("y");
+		final NaryExpr e = new NaryOrExpr(new XOrExpr(x, y), new XNOrExpr(y, x));
+		assertEquals(e, new Simplifier(new CommandLine("-o4").simplifierOpts).simplify(e));
+		assertEquals(ConstantExpr.TrueExpr, new Simplifier(new CommandLine("-o5").simplifierOpts).simplify(e));
+	}
+
+	@Test
+	public void testTruthTableDuplicatesWide() {
+		// parity of x0 .. x7 written in two orders: more variables than one word of a table holds
+		Expr left = new VarExpr("x0");
+		Expr right = new VarExpr("x7");
+		for (int i = 1; i < 8; i++) {
+			left = new XOrExpr(left, new VarExpr("x" + i));
+			right = new XOrExpr(right, new VarExpr("x" + (7 - i)));
+		}
+		final NaryExpr e = new NaryAndExpr(left, right);
+		final NaryExpr sorted = (NaryExpr) new Simplifier(new CommandLine("-o4").simplifierOpts).simplify(e);
+		assertEquals(2, sorted.children.size());
+		// the first child in sorted order is kept
+		assertEquals(sorted.children.get(0), new Simplifier(new CommandLine("-o5").simplifierOpts).simplify(e));
+	}
+
+	@Test
+	public void testPassSelection() {
+		// x + (x . y) + 0 = x, but only with both constant folding and absorption
+		final Expr x = new VarExpr("x");
+		final NaryExpr e = new NaryOrExpr(x, new NaryAndExpr(x, new VarExpr("y")), ConstantExpr.FalseExpr);
+		final Simplifier constant = new Simplifier(EnumSet.of(FSimplifierOptions.CONSTANT));
+		assertEquals(new NaryOrExpr(x, new NaryAndExpr(x, new VarExpr("y"))), constant.simplify(e));
+		assertEquals(1, constant.fired(Simplifier.Pass.FOLD_IDENTITY));
+		assertEquals(0, constant.calls(Simplifier.Pass.SIMPLE_ABSORPTION));
+		final Simplifier all = new Simplifier();
+		assertEquals(x, all.simplify(e));
+		assertEquals(1, all.fired(Simplifier.Pass.SIMPLE_ABSORPTION));
+		assertTrue(all.nodesRemoved(Simplifier.Pass.SIMPLE_ABSORPTION) > 0);
+	}
+
+	@Test
+	public void testDefaultOptions() {
+		// without -o, the command line selects the same passes as new Simplifier()
+		assertEquals(Simplifier.DEFAULT_OPTIONS, new CommandLine("x.f").simplifierOpts);
+		assertEquals(Simplifier.DEFAULT_OPTIONS, new CommandLine("-o", "x.f").simplifierOpts);
+		assertEquals(EnumSet.of(FSimplifierOptions.STANDARDIZE, FSimplifierOptions.CONSTANT), new CommandLine("-o1", "x.f").simplifierOpts);
+	}
+
+	@Test
+	public void testAbsorptionWithNegatedLiterals() {
+		// !a + (!a . b) + (b . c . !d) + (b . !d) = !a + (b . !d)
+		final Expr na = new NotExpr(new VarExpr("a"));
+		final Expr b = new VarExpr("b");
+		final Expr nd = new NotExpr(new VarExpr("d"));
+		final NaryExpr e = new NaryOrExpr(na, new NaryAndExpr(na, b), new NaryAndExpr(b, new VarExpr("c"), nd), new NaryAndExpr(b, nd));
+		final Expr result = e.simplify();
+		assertTrue(result.repOk());
+		assertEquals(new NaryOrExpr(na, new NaryAndExpr(b, nd)), result);
+	}
+
+	@Test
+	public void testWideSumOfProducts() {
+		// every product of two literals absorbs the products of three that contain it
+		final NaryExpr.Builder b = NaryOrExpr.builder();
+		final NaryExpr.Builder expected = NaryOrExpr.builder();
+		for (int i = 0; i < 200; i++) {
+			final Expr x = new VarExpr("x" + i);
+			final Expr ny = new NotExpr(new VarExpr("y" + i));
+			b.add(new NaryAndExpr(x, ny));
+			b.add(new NaryAndExpr(x, ny, new VarExpr("z" + i)));
+			expected.add(new NaryAndExpr(x, ny));
+		}
+		final Expr result = b.build().simplify();
+		assertTrue(result.repOk());
+		assertEquals(expected.build(), result);
+	}
+
+	@Test
+	public void testSharedSubterms() {
+		// e(i+1) = (e(i) . x(i)) + (e(i) . !x(i) . '1') has 2^40 paths but only about 200 distinct subterms
+		Expr e = new VarExpr("y");
+		for (int i = 0; i < 40; i++) {
+			final Expr x = ExprFactory.var("x" + i);
+			e = ExprFactory.or(ExprFactory.and(e, x), ExprFactory.and(e, ExprFactory.and(ExprFactory.not(x), ConstantExpr.TrueExpr)));
+		}
+		final Simplifier simplifier = new Simplifier();
+		final Expr result = simplifier.simplify(e);
+		assertTrue(simplifier.size() < 1000);
+		assertTrue(result instanceof NaryOrExpr);
+		// simplifying again does nothing
+		assertTrue(result == simplifier.simplify(result));
+	}
+
 }
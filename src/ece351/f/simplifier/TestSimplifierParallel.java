@@ -0,0 +1,98 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+package ece351.f.simplifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.ConstantExpr;
+import ece351.common.ast.Expr;
+import ece351.common.ast.ExprFactory;
+import ece351.common.ast.Simplifier;
+import ece351.f.ast.FProgram;
+import ece351.util.BaseTest351;
+import ece351.util.CommandLine;
+
+public class TestSimplifierParallel extends BaseTest351 {
+
+	@Test
+	public void testSameAsSequential() {
+		for (final Map.Entry<String,FProgram> e : TestSimplifier2.ORIGINAL.entrySet()) {
+			final FProgram original = e.getValue();
+			assertEquals(e.getKey(), original.simplify(), original.simplifyInParallel(4));
+		}
+	}
+
+	@Test
+	public void testManyOutputs() {
+		// 500 outputs over shared subterms, each one simplifiable
+		final List<AssignmentStatement> formulas = new ArrayList<AssignmentStatement>();
+		Expr shared = ExprFactory.var("a");
+		for (int i = 0; i < 500; i++) {
+			final Expr x = ExprFactory.var("x" + (i % 17));
+			shared = ExprFactory.or(ExprFactory.and(shared, x), ExprFactory.and(x, ConstantExpr.FalseExpr));
+			formulas.add(new AssignmentStatement(ExprFactory.var("out" + i), shared));
+		}
+		final FProgram original = new FProgram(formulas);
+		final Simplifier sequential = new Simplifier();
+		final Simplifier parallel = new Simplifier();
+		final FProgram expected = original.simplify(sequential);
+		final FProgram actual = original.simplifyInParallel(parallel, 8);
+		assertEquals(expected, actual);
+		// outputs stay in order
+		for (int i = 0; i < formulas.size(); i++) {
+			assertEquals(original.formulas.get(i).outputVar, actual.formulas.get(i).outputVar);
+		}
+		// every task reports its statistics
+		assertTrue(parallel.fired(Simplifier.Pass.FOLD_ABSORBING) >= sequential.fired(Simplifier.Pass.FOLD_ABSORBING));
+	}
+
+	@Test
+	public void testCommandLine() {
+		assertEquals(1, new CommandLine("-o4").parallelism);
+		assertEquals(3, new CommandLine("-j3").parallelism);
+		assertEquals(Runtime.getRuntime().availableProcessors(), new CommandLine("-j").parallelism);
+	}
+
+	@Test
+	public void testSimplifyWithCommandLine() {
+		// -j goes through FProgram.simplify(CommandLine), as in TechnologyMapper.main
+		final CommandLine c = new CommandLine("-v0", "-j4", "x.f");
+		for (final Map.Entry<String,FProgram> e : TestSimplifier2.ORIGINAL.entrySet()) {
+			final FProgram original = e.getValue();
+			assertEquals(e.getKey(), original.simplify(), original.simplify(c));
+		}
+	}
+
+}
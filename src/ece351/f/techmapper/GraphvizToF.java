@@ -35,16 +35,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.Expr;
-import ece351.common.ast.NaryAndExpr;
-import ece351.common.ast.NaryOrExpr;
-import ece351.common.ast.NotExpr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.VarExpr;
 import ece351.f.ast.FProgram;
+import ece351.util.PersistentVector;
 import ece351.util.Tuple;
 
 
@@ -107,13 +104,13 @@ public final class GraphvizToF {
 			final String key = entry.getKey();
 			final String val = entry.getValue();
 			if(key.startsWith("var")) {
-				exprMap.put(key, new VarExpr(val));
+				exprMap.put(key, ExprFactory.var(val));
 			} else {
 				exprMap.put(key, ConstantExpr.make(val.replace('\'', ' ').trim()));
 			}
 		}
 
-		ImmutableList<AssignmentStatement> formulas = ImmutableList.of();
+		PersistentVector<AssignmentStatement> formulas = PersistentVector.of();
 
 		// Iterate through every edge, this is based on the assumption that
 		// the edges are sorted in post-order from the TechnologyMapper.
@@ -130,13 +127,13 @@ public final class GraphvizToF {
 				children.add(exprMap.get(source));
 			} else {
 				if(previousTarget.startsWith("or")) {
-					exprMap.put(previousTarget, new NaryOrExpr(children));
+					exprMap.put(previousTarget, ExprFactory.naryOr(children));
 					gates++;
 				} else if (previousTarget.startsWith("and")) {
-					exprMap.put(previousTarget, new NaryAndExpr(children));
+					exprMap.put(previousTarget, ExprFactory.naryAnd(children));
 					gates++;
 				} else if (previousTarget.startsWith("not")) {
-					exprMap.put(previousTarget, new NotExpr(children.get(0)));
+					exprMap.put(previousTarget, ExprFactory.not(children.get(0)));
 					gates++;
 				}
 
@@ -54,6 +54,7 @@ import ece351.common.visitor.PostOrderExprVisitor;
 import ece351.f.FParser;
 import ece351.f.analysis.ExtractAllExprs;
 import ece351.f.ast.FProgram;
+import ece351.util.CommandLine;
 import ece351.util.Examiner;
 
 public final class TechnologyMapper extends PostOrderExprVisitor {
@@ -104,8 +105,16 @@ public final class TechnologyMapper extends PostOrderExprVisitor {
 	public static void main(final String arg) {
 		main(new String[]{arg});
 	}
+	/**
+	 * Render the simplified program. The -o options select the simplifier
+	 * passes, -j simplifies the formulas in parallel, and -v prints the
+	 * statistics of the passes.
+	 */
 	public static void main(final String[] args) {
-		render(FParser.parse(args), new PrintWriter(System.out));
+		final CommandLine c = new CommandLine(args);
+		final PrintWriter out = new PrintWriter(System.out);
+		render(FParser.parse(c).simplify(c), out);
+		out.flush();
 	}
 	
 	/**
@@ -32,6 +32,14 @@ import org.junit.BeforeClass;
 
 import ece351.TestImports;
 import ece351.TestPrelabConfig;
+import ece351.common.ast.AssignmentStatement;
+import ece351.common.ast.Expr;
+import ece351.common.ast.NaryAndExpr;
+import ece351.common.ast.NaryOrExpr;
+import ece351.common.ast.NotExpr;
+import ece351.common.ast.VarExpr;
+import ece351.f.ast.FProgram;
+import ece351.f.parboiled.FParboiledParser;
 
 public class BaseTest351 {
 
@@ -40,5 +48,26 @@ public class BaseTest351 {
 		assertTrue(TestPrelabConfig.areAssertionsEnabled());
 		assertTrue(TestImports.check());
 	}
+
+	/** An F program given as text. */
+	protected static FProgram fprogram(final String program) {
+		return FParboiledParser.parse(program);
+	}
+
+	/** x <= e */
+	protected static FProgram program(final Expr e) {
+		return new FProgram(PersistentVector.of(new AssignmentStatement(new VarExpr("x"), e)));
+	}
+
+	/** e(k+1) = e(k) ? a(k+1) : b(k+1), which mentions e(k) twice */
+	protected static Expr chain(final int depth) {
+		Expr e = new VarExpr("a0");
+		for (int k = 1; k <= depth; k++) {
+			e = new NaryOrExpr(
+					new NaryAndExpr(e, new VarExpr("a" + k)),
+					new NaryAndExpr(new NotExpr(e), new VarExpr("b" + k)));
+		}
+		return e;
+	}
 	
 }
@@ -44,7 +44,9 @@ public final class CommandLine {
 		CONSTANT,
 		COMPLEMENT,
 		DEDUPLICATION,
-		ABSORPTION 
+		ABSORPTION,
+		/** also find duplicates and complements by comparing small truth tables */
+		TRUTHTABLE
 	}
 
 	public final int argcount;
@@ -56,6 +58,9 @@ public final class CommandLine {
 	public final int simplifierOptLevel;
 	public final EnumSet<FSimplifierOptions> simplifierOpts;
 	
+	/** Number of threads for simplification: -j for all cores, -jN for N. */
+	public final int parallelism;
+	
 	private String outputSpec = UNRESOLVED;
 	
 	/**
@@ -89,7 +94,8 @@ public final class CommandLine {
 		boolean p = false;
 		boolean v = true; // debug flag is on by default
 		boolean d = false;
-		int o = 1; // Default level for simplifier
+		int o = 4; // Default level for simplifier: every pass but truth tables, as Simplifier.DEFAULT_OPTIONS
+		int j = 1; // sequential by default
 		for (int i = 0; i < args.length; i++) {
 			if (args[i].length() == 0 || args[i].replaceAll(" *", "").length() == 0) {
 				// ignore empty strings
@@ -120,6 +126,14 @@ public final class CommandLine {
 					}
 				} catch (final NumberFormatException e) { /* Default level for simplifier */ }
 				continue;
+			} else if (args[i].startsWith("-j")) {
+				j = Runtime.getRuntime().availableProcessors();
+				try {
+					if (!args[i].equals("-j")) {	// extract thread count only if specified
+						j = Math.max(1, Integer.parseInt(args[i].substring(2)));
+					}
+				} catch (final NumberFormatException e) { /* all cores */ }
+				continue;
 			} else {
 				inputSpecs.add(args[i]);
 			}
@@ -137,9 +151,12 @@ public final class CommandLine {
 		parbparser = p;
 		parseDOM = d;
 		
+		parallelism = j;
 		simplifierOptLevel = o;
 		simplifierOpts = EnumSet.noneOf(FSimplifierOptions.class);
 		switch(simplifierOptLevel) {
+			case 5:
+				simplifierOpts.add(FSimplifierOptions.TRUTHTABLE);
 			case 4:
 				simplifierOpts.add(FSimplifierOptions.ABSORPTION);
 			case 3:
@@ -178,6 +195,14 @@ public final class CommandLine {
 	public String readInputSpec() {
 		return readInputSpec(0);
 	}
+
+	/**
+	 * The second input, for tools that take two, such as Simulate
+	 * (an F program, then the W program of its input waves).
+	 */
+	public String readSecondInputSpec() {
+		return readInputSpec(1);
+	}
 	
 	/**
 	 * Resolve inputSpec to the contents of the file it names, or itself
@@ -29,8 +29,6 @@ package ece351.util;
 import java.util.BitSet;
 import java.util.List;
 
-import org.parboiled.common.ImmutableList;
-
 public enum Examiner {
 
 	Equals {
@@ -113,7 +111,7 @@ public enum Examiner {
 	 * @return
 	 */
 	public static <T extends Examinable, L extends List<T>> Tuple<? extends List<T>,? extends List<T>> symmetricDifference(final Examiner e, final L a, final L b, final boolean failfast) {
-		final ImmutableList<T> empty = ImmutableList.of();
+		final PersistentVector<T> empty = PersistentVector.of();
 		if (a == null && b == null) return new Tuple<List<T>,List<T>>(empty,empty);
 		if (a == null) return new Tuple<List<T>,List<T>>(empty,b);
 		if (b == null) return new Tuple<List<T>,List<T>>(a,empty);
@@ -121,7 +119,7 @@ public enum Examiner {
 			if (a.size() != b.size()) return new Tuple<List<T>,List<T>>(a,b);
 		}
 		// now we know that both are not null
-		ImmutableList<T> aResult = empty;
+		PersistentVector<T> aResult = empty;
 		final int sizeB = b.size();
 		final BitSet bitsB = new BitSet(sizeB);
 		// check that everything in A is also in B
@@ -145,7 +143,7 @@ public enum Examiner {
 			}
 		}
 		// what didn't match from B?
-		ImmutableList<T> bResult = empty;
+		PersistentVector<T> bResult = empty;
 		for (int i = 0; i < sizeB; i++) {
 			if (!bitsB.get(i)) {
 				bResult = bResult.append(b.get(i));
@@ -163,8 +161,8 @@ public enum Examiner {
 	 * @return
 	 */
 	public static <T> boolean unorderedEquals(final List<T> a, final List<T> b) {
-		ImmutableList<EqualsExaminer<T>> la = ImmutableList.of();
-		ImmutableList<EqualsExaminer<T>> lb = ImmutableList.of();
+		PersistentVector<EqualsExaminer<T>> la = PersistentVector.of();
+		PersistentVector<EqualsExaminer<T>> lb = PersistentVector.of();
 		for (final T item : a) { la = la.append(new EqualsExaminer<T>(item)); }
 		for (final T item : b) { lb = lb.append(new EqualsExaminer<T>(item)); }
 		return unorderedExamination(Examiner.Equals, la, lb);
@@ -177,8 +175,8 @@ public enum Examiner {
 	 * @return
 	 */
 	public static <T> boolean orderedEquals(final List<T> a, final List<T> b) {
-		ImmutableList<EqualsExaminer<T>> la = ImmutableList.of();
-		ImmutableList<EqualsExaminer<T>> lb = ImmutableList.of();
+		PersistentVector<EqualsExaminer<T>> la = PersistentVector.of();
+		PersistentVector<EqualsExaminer<T>> lb = PersistentVector.of();
 		for (final T item : a) { la = la.append(new EqualsExaminer<T>(item)); }
 		for (final T item : b) { lb = lb.append(new EqualsExaminer<T>(item)); }
 		return orderedExamination(Examiner.Equals, la, lb);
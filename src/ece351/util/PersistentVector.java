@@ -0,0 +1,194 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable list with cheap append.
+ * 
+ * Several vectors may share one backing array. A vector of size n can 
+ * append in place if no other vector has claimed slot n of the shared
+ * array yet; otherwise the append copies into a new array with twice the
+ * capacity. So a chain of appends, where each result is only appended to
+ * once (the usual way the ASTs are built), takes amortized constant time
+ * per append, instead of copying the whole list each time.
+ * 
+ * Use a Builder to construct a vector in bulk.
+ * 
+ * The mutators inherited from List throw UnsupportedOperationException.
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+	/** Backing array shared by the vectors that are prefixes of each other. */
+	private static final class Store {
+		final Object[] array;
+		/** Number of slots of array that have been claimed. */
+		final AtomicInteger used;
+		Store(final Object[] array, final int used) {
+			this.array = array;
+			this.used = new AtomicInteger(used);
+		}
+	}
+
+	private static final PersistentVector<Object> EMPTY = new PersistentVector<Object>(new Store(new Object[0], 0), 0);
+
+	private final Store store;
+	private final int size;
+
+	private PersistentVector(final Store store, final int size) {
+		this.store = store;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentVector<E> of() {
+		return (PersistentVector<E>) EMPTY;
+	}
+
+	@SafeVarargs
+	public static <E> PersistentVector<E> of(final E... elements) {
+		if (elements.length == 0) return of();
+		// copied element by element: the varargs array must not escape
+		final Object[] a = new Object[elements.length];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = elements[i];
+		}
+		return new PersistentVector<E>(new Store(a, a.length), a.length);
+	}
+
+	/**
+	 * Does not copy if the argument is already a PersistentVector.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentVector<E> copyOf(final Collection<? extends E> c) {
+		if (c instanceof PersistentVector<?>) {
+			return (PersistentVector<E>) c;
+		}
+		if (c.isEmpty()) return of();
+		final Object[] a = c.toArray();
+		return new PersistentVector<E>(new Store(a, a.length), a.length);
+	}
+
+	public static <E> Builder<E> builder() {
+		return new Builder<E>();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " size " + size);
+		}
+		return (E) store.array[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a new vector with e at the end
+	 */
+	public PersistentVector<E> append(final E e) {
+		final Object[] a = store.array;
+		if (size < a.length && store.used.compareAndSet(size, size + 1)) {
+			// slot is free: share the array
+			a[size] = e;
+			return new PersistentVector<E>(store, size + 1);
+		} else {
+			// slot is taken, or array is full: copy
+			final Object[] b = Arrays.copyOf(a, Math.max(4, size * 2));
+			b[size] = e;
+			return new PersistentVector<E>(new Store(b, size + 1), size + 1);
+		}
+	}
+
+	/**
+	 * @return a new vector with the elements of c at the end
+	 */
+	public PersistentVector<E> appendAll(final Collection<? extends E> c) {
+		if (c.isEmpty()) return this;
+		if (size == 0) return copyOf(c);
+		final Builder<E> b = new Builder<E>(size + c.size());
+		b.addAll(this);
+		b.addAll(c);
+		return b.build();
+	}
+
+	/**
+	 * Mutable accumulator for constructing a PersistentVector.
+	 * The builder must not be used after build() is called.
+	 */
+	public static final class Builder<E> {
+		private Object[] array;
+		private int size = 0;
+
+		public Builder() {
+			this(8);
+		}
+
+		public Builder(final int capacity) {
+			array = new Object[Math.max(capacity, 1)];
+		}
+
+		public Builder<E> add(final E e) {
+			if (size == array.length) {
+				array = Arrays.copyOf(array, size * 2);
+			}
+			array[size++] = e;
+			return this;
+		}
+
+		public Builder<E> addAll(final Collection<? extends E> c) {
+			if (size + c.size() > array.length) {
+				array = Arrays.copyOf(array, Math.max(size * 2, size + c.size()));
+			}
+			for (final E e : c) {
+				array[size++] = e;
+			}
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public PersistentVector<E> build() {
+			if (size == 0) return of();
+			final PersistentVector<E> result = new PersistentVector<E>(new Store(array, size), size);
+			array = null;
+			return result;
+		}
+	}
+}
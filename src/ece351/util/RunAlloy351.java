@@ -42,9 +42,6 @@
 package ece351.util;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
 
 import edu.mit.csail.sdg.alloy4.A4Reporter;
 import edu.mit.csail.sdg.alloy4.ErrorWarning;
@@ -70,33 +67,30 @@ public final class RunAlloy351 {
      * a ErrorSyntax or ErrorType or ErrorAPI or ErrorFatal exception.
      * You should catch them and display them,
      * and they may contain filename/line/column information.
+     *
+     * Single-threaded by design: Alloy 4 keeps global state in its parser
+     * and translator, so concurrent calls wait for each other, even though
+     * each call has its own A4Reporter and A4Options. Callers that need
+     * concurrent equivalence checks should use EquivalenceChecker (see
+     * EquivalenceService) or KodkodConverter, which share no such state.
      */
     public static boolean check(final String content) {
+    	synchronized (LOCK) {
+    		return checkLocked(content);
+    	}
+    }
 
-    	final File file = new File("RunAlloy351.als");
-		try {
-			final PrintWriter pw = new PrintWriter(new FileWriter(file));
-	    	pw.write(content);
-	    	pw.flush();
-	    	pw.close();
-		} catch (IOException e1) {
-			throw new RuntimeException(e1);
-		}
-    	
-//    	copyFromJAR();
-        final String binary = alloyHome() + fs + "binary";
-//        System.out.println(binary);
-        // Add the new JNI location to the java.library.path
-        try {
-            System.setProperty("java.library.path", binary);
-            // The above line is actually useless on Sun JDK/JRE (see Sun bug ID 4280189)
-            // The following 4 lines should work for Sun JDK/JRE (though they probably will not work for others)
-            String[] newarray = new String[]{binary};
-            java.lang.reflect.Field old = ClassLoader.class.getDeclaredField("usr_paths");
-            old.setAccessible(true);
-            old.set(null,newarray);
-        } catch (Throwable ex) { }
-    	
+    /** Serializes the calls to Alloy, which keeps global state. */
+    private static final Object LOCK = new Object();
+
+    /** Whether the JNI location has been added to the library path yet. */
+    private static boolean libraryPathSet = false;
+
+    private static boolean checkLocked(final String content) {
+    	if (!libraryPathSet) {
+    		setLibraryPath();
+    		libraryPathSet = true;
+    	}
         // Alloy4 sends diagnostic messages and progress reports to the A4Reporter.
         // By default, the A4Reporter ignores all these events (but you can extend the A4Reporter to display the event for the user)
         A4Reporter rep = new A4Reporter() {
@@ -130,7 +124,8 @@ public final class RunAlloy351 {
 //        System.out.println("=========== Parsing+Typechecking =============");
         Module world = null;
         try {
-        	world = CompUtil.parseEverything_fromFile(rep, null, file.getAbsolutePath());
+        	// parse the model from memory: no scratch file
+        	world = CompUtil.parseEverything_fromString(rep, content);
         } catch (final Exception e) {
         	throw new RuntimeException(e);
         }
@@ -250,6 +245,22 @@ public final class RunAlloy351 {
 //        System.setProperty("alloy.home", alloyHome());
 //    }
     
+    private static void setLibraryPath() {
+//    	copyFromJAR();
+        final String binary = alloyHome() + fs + "binary";
+//        System.out.println(binary);
+        // Add the new JNI location to the java.library.path
+        try {
+            System.setProperty("java.library.path", binary);
+            // The above line is actually useless on Sun JDK/JRE (see Sun bug ID 4280189)
+            // The following 4 lines should work for Sun JDK/JRE (though they probably will not work for others)
+            String[] newarray = new String[]{binary};
+            java.lang.reflect.Field old = ClassLoader.class.getDeclaredField("usr_paths");
+            old.setAccessible(true);
+            old.set(null,newarray);
+        } catch (Throwable ex) { }
+    }
+
     private static synchronized String alloyHome() {
         if (alloyHome!=null) return alloyHome;
         String temp=System.getProperty("java.io.tmpdir");
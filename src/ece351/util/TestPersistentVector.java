@@ -0,0 +1,94 @@
+/* *********************************************************************
+ * ECE351 
+ * Department of Electrical and Computer Engineering 
+ * University of Waterloo 
+ * Term: Fall 2021 (1219)
+ *
+ * The base version of this file is the intellectual property of the
+ * University of Waterloo. Redistribution is prohibited.
+ *
+ * By pushing changes to this file I affirm that I am the author of
+ * all changes. I affirm that I have complied with the course
+ * collaboration policy and have not plagiarized my work. 
+ *
+ * I understand that redistributing this file might expose me to
+ * disciplinary action under UW Policy 71. I understand that Policy 71
+ * allows for retroactive modification of my final grade in a course.
+ * For example, if I post my solutions to these labs on GitHub after I
+ * finish ECE351, and a future student plagiarizes them, then I too
+ * could be found guilty of plagiarism. Consequently, my final grade
+ * in ECE351 could be retroactively lowered. This might require that I
+ * repeat ECE351, which in turn might delay my graduation.
+ *
+ * https://uwaterloo.ca/secretariat-general-counsel/policies-procedures-guidelines/policy-71
+ * 
+ * ********************************************************************/
+
+
+package ece351.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestPersistentVector {
+
+	@Test
+	public void testAppendIsPersistent() {
+		final PersistentVector<String> empty = PersistentVector.of();
+		final PersistentVector<String> a = empty.append("a");
+		final PersistentVector<String> ab = a.append("b");
+		// appending to a again must not disturb ab
+		final PersistentVector<String> ac = a.append("c");
+		assertEquals(0, empty.size());
+		assertEquals(Arrays.asList("a"), a);
+		assertEquals(Arrays.asList("a", "b"), ab);
+		assertEquals(Arrays.asList("a", "c"), ac);
+		assertEquals(Arrays.asList("a", "b", "d"), ab.append("d"));
+		assertEquals(Arrays.asList("a", "c", "e"), ac.append("e"));
+	}
+
+	@Test
+	public void testLongChain() {
+		PersistentVector<Integer> v = PersistentVector.of();
+		final List<PersistentVector<Integer>> prefixes = new ArrayList<PersistentVector<Integer>>();
+		for (int i = 0; i < 100000; i++) {
+			v = v.append(i);
+			if (i % 1000 == 0) prefixes.add(v);
+		}
+		assertEquals(100000, v.size());
+		for (int i = 0; i < v.size(); i++) {
+			assertEquals(i, v.get(i).intValue());
+		}
+		for (int p = 0; p < prefixes.size(); p++) {
+			assertEquals(p * 1000 + 1, prefixes.get(p).size());
+		}
+	}
+
+	@Test
+	public void testBuilderAndCopy() {
+		final PersistentVector.Builder<String> b = PersistentVector.builder();
+		for (int i = 0; i < 20; i++) {
+			b.add(Integer.toString(i));
+		}
+		final PersistentVector<String> v = b.build();
+		assertEquals(20, v.size());
+		assertEquals("19", v.get(19));
+		assertSame(v, PersistentVector.copyOf(v));
+		assertEquals(v, PersistentVector.copyOf(new ArrayList<String>(v)));
+		assertEquals(Arrays.asList("x", "y", "z"), PersistentVector.of("x").appendAll(Arrays.asList("y", "z")));
+		assertTrue(v.hashCode() == new ArrayList<String>(v).hashCode());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutable() {
+		PersistentVector.of("a").add("b");
+	}
+
+}
@@ -30,6 +30,7 @@ import ece351.common.ast.AndExpr;
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.EqualExpr;
 import ece351.common.ast.Expr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.NAndExpr;
 import ece351.common.ast.NOrExpr;
 import ece351.common.ast.NaryAndExpr;
@@ -68,33 +69,33 @@ public final class DeSugarer extends PostOrderVVisitor {
 	@Override
 	public Expr visitXOr(final XOrExpr e) {
 		// TODO: rewrite XOR and return new expression
-		return new OrExpr(new AndExpr(e.left, new NotExpr(e.right)), new AndExpr(new NotExpr(e.left), e.right));
+		return ExprFactory.or(ExprFactory.and(e.left, ExprFactory.not(e.right)), ExprFactory.and(ExprFactory.not(e.left), e.right));
 	}
 	
 	@Override
 	public Expr visitNAnd(final NAndExpr e) {
 		// TODO: rewrite NAND and return new expression
-		return new NotExpr(new AndExpr(e.left, e.right));
+		return ExprFactory.not(ExprFactory.and(e.left, e.right));
 	}
 	
 	@Override
 	public Expr visitNOr(final NOrExpr e) {
 		// TODO: rewrite NOR and return new expression
-		return new NotExpr(new OrExpr(e.left, e.right));
+		return ExprFactory.not(ExprFactory.or(e.left, e.right));
 	}
 	
 	@Override
 	public Expr visitXNOr(final XNOrExpr e) {
 		// TODO: rewrite XNOR and return new expression
-		return new NotExpr(new OrExpr(new AndExpr(e.left, new NotExpr(e.right)),
-				  			new AndExpr(new NotExpr(e.left), e.right)));
+		return ExprFactory.not(ExprFactory.or(ExprFactory.and(e.left, ExprFactory.not(e.right)),
+				  			ExprFactory.and(ExprFactory.not(e.left), e.right)));
 	}
 
 	@Override
 	public Expr visitEqual(final EqualExpr e) {
 		//TODO: equals operator has the same truth table as xnor
-		return new NotExpr(new OrExpr(new AndExpr(e.left, new NotExpr(e.right)),
-	  			new AndExpr(new NotExpr(e.left), e.right)));
+		return ExprFactory.not(ExprFactory.or(ExprFactory.and(e.left, ExprFactory.not(e.right)),
+	  			ExprFactory.and(ExprFactory.not(e.left), e.right)));
 	}
 
 	// these stay the same, no desugaring
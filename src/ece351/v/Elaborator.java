@@ -30,13 +30,12 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.EqualExpr;
 import ece351.common.ast.Expr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.NAndExpr;
 import ece351.common.ast.NOrExpr;
 import ece351.common.ast.NaryAndExpr;
@@ -49,6 +48,7 @@ import ece351.common.ast.XNOrExpr;
 import ece351.common.ast.XOrExpr;
 import ece351.common.visitor.PostOrderExprVisitor;
 import ece351.util.CommandLine;
+import ece351.util.PersistentVector;
 import ece351.v.ast.Architecture;
 import ece351.v.ast.Component;
 import ece351.v.ast.DesignUnit;
@@ -92,7 +92,7 @@ public final class Elaborator extends PostOrderExprVisitor {
 		// iterate over all of the designUnits in root.
 		for (DesignUnit designUnit : root.designUnits) {
 			// for each one, construct a new architecture.
-			Architecture arch = designUnit.arch.varyComponents(ImmutableList.<Component>of());
+			Architecture arch = designUnit.arch.varyComponents(PersistentVector.<Component>of());
 			// this gives us a copy of the architecture with an empty list of components.
 			
 			// now we can build up this Architecture with new components.
@@ -157,12 +157,12 @@ public final class Elaborator extends PostOrderExprVisitor {
 	
 	// you do not have to use these helper methods; we found them useful though
 	private Process expandProcessComponent(final Process process) {
-		ImmutableList<String> sensitivityList = ImmutableList.of();
+		PersistentVector<String> sensitivityList = PersistentVector.of();
 		for (String input : process.sensitivityList) {
 			sensitivityList = sensitivityList.append(current_map.get(input));
 		}
 		
-		ImmutableList<Statement> sequentialStatements = ImmutableList.of();
+		PersistentVector<Statement> sequentialStatements = PersistentVector.of();
 		for (Statement statement : process.sequentialStatements) {
 			if (statement.getClass() == AssignmentStatement.class) {
 				sequentialStatements = sequentialStatements.append(changeStatementVars((AssignmentStatement)statement));
@@ -179,11 +179,11 @@ public final class Elaborator extends PostOrderExprVisitor {
 	// you do not have to use these helper methods; we found them useful though
 	private  IfElseStatement changeIfVars(final IfElseStatement s) {
 		Expr condition = traverseExpr(s.condition);
-		ImmutableList<AssignmentStatement> ifBody = ImmutableList.of();
+		PersistentVector<AssignmentStatement> ifBody = PersistentVector.of();
 		for (AssignmentStatement stmt : s.ifBody) {
 			ifBody = ifBody.append(changeStatementVars(stmt));
 		}
-		ImmutableList<AssignmentStatement> elseBody = ImmutableList.of();
+		PersistentVector<AssignmentStatement> elseBody = PersistentVector.of();
 		for (AssignmentStatement stmt : s.elseBody) {
 			elseBody = elseBody.append(changeStatementVars(stmt));
 		}
@@ -199,7 +199,7 @@ public final class Elaborator extends PostOrderExprVisitor {
 	@Override
 	public Expr visitVar(VarExpr e) {
 		// replace/substitute the variable found in the map
-		return new VarExpr(current_map.get(e.identifier));
+		return ExprFactory.var(current_map.get(e.identifier));
 	}
 	
 	// do not rewrite these parts of the AST
@@ -26,8 +26,6 @@
 
 package ece351.v;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
@@ -44,6 +42,7 @@ import ece351.common.ast.VarExpr;
 import ece351.common.ast.XNOrExpr;
 import ece351.common.ast.XOrExpr;
 import ece351.common.visitor.PostOrderExprVisitor;
+import ece351.util.PersistentVector;
 import ece351.v.ast.DesignUnit;
 import ece351.v.ast.IfElseStatement;
 import ece351.v.ast.Process;
@@ -61,18 +60,18 @@ public abstract class PostOrderVVisitor extends PostOrderExprVisitor {
 		VProgram result = new VProgram();
 		
 		for (final DesignUnit d : v.designUnits) {
-			ImmutableList<Statement> architectureStatements = ImmutableList.of();
+			PersistentVector<Statement> architectureStatements = PersistentVector.of();
 			
 			for (final Statement i : d.arch.statements) {				
 				if (i instanceof Process) {
-					ImmutableList<Statement> sequentialStatements = ImmutableList.of();
+					PersistentVector<Statement> sequentialStatements = PersistentVector.of();
 					
 					for (final Statement proc_stmt : ((Process) i).sequentialStatements) {
 						if (proc_stmt instanceof IfElseStatement) {
 							final IfElseStatement ifElseStmt = (IfElseStatement) proc_stmt;
 							final Expr condition = traverseExpr(ifElseStmt.condition);
-							ImmutableList<AssignmentStatement> ifBody = ImmutableList.of();
-							ImmutableList<AssignmentStatement> elseBody = ImmutableList.of();
+							PersistentVector<AssignmentStatement> ifBody = PersistentVector.of();
+							PersistentVector<AssignmentStatement> elseBody = PersistentVector.of();
 							
 							for(final AssignmentStatement stmt : ifElseStmt.ifBody) {
 								ifBody = ifBody.append(new AssignmentStatement(stmt.outputVar, traverseExpr(stmt.expr)));
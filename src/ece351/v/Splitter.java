@@ -29,8 +29,6 @@ package ece351.v;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.AndExpr;
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
@@ -48,6 +46,7 @@ import ece351.common.ast.XNOrExpr;
 import ece351.common.ast.XOrExpr;
 import ece351.common.visitor.PostOrderExprVisitor;
 import ece351.util.CommandLine;
+import ece351.util.PersistentVector;
 import ece351.v.ast.Architecture;
 import ece351.v.ast.DesignUnit;
 import ece351.v.ast.IfElseStatement;
@@ -82,14 +81,14 @@ public final class Splitter extends PostOrderExprVisitor {
 	private VProgram splitit(final VProgram program) {
 		VProgram result = new VProgram();
 		for (DesignUnit designUnit : program.designUnits) {
-			ImmutableList<Statement> statements = ImmutableList.of();
+			PersistentVector<Statement> statements = PersistentVector.of();
 			for (Statement statement : designUnit.arch.statements) {
 				if (statement.getClass() == Process.class) {
 					// Determine if the process needs to be split into multiple processes
 					// According to a campuswire thread, a process can either only contain ifElseStatements or AssignmentStatements
 					if (!((Process)statement).sequentialStatements.isEmpty() && ((Process)statement).sequentialStatements.get(0).getClass() == IfElseStatement.class) {
 						for (Statement ifElseStatement : ((Process)statement).sequentialStatements) {
-							ImmutableList<Statement> processes = splitIfElseStatement((IfElseStatement)ifElseStatement);
+							PersistentVector<Statement> processes = splitIfElseStatement((IfElseStatement)ifElseStatement);
 							for (Statement process : processes) {
 								statements = statements.append(process);
 							}
@@ -108,8 +107,8 @@ public final class Splitter extends PostOrderExprVisitor {
 	}
 	
 	// You do not have to use this helper method, but we found it useful
-	private ImmutableList<Statement> splitIfElseStatement(final IfElseStatement ifStmt) {
-		ImmutableList<Statement> processes = ImmutableList.of();
+	private PersistentVector<Statement> splitIfElseStatement(final IfElseStatement ifStmt) {
+		PersistentVector<Statement> processes = PersistentVector.of();
 		
 		if (ifStmt.ifBody.size() <= 1) {
 			// Simply create new process for this ifElseStatement
@@ -117,11 +116,11 @@ public final class Splitter extends PostOrderExprVisitor {
 			this.traverseExpr(ifStmt.ifBody.get(0).expr);
 			this.traverseExpr(ifStmt.elseBody.get(0).expr);
 			this.traverseExpr(ifStmt.condition);
-			ImmutableList<String> sensitivityList = ImmutableList.of();
+			PersistentVector<String> sensitivityList = PersistentVector.of();
 			for (String usedVar : this.usedVarsInExpr) {
 				sensitivityList = sensitivityList.append(usedVar);
 			}
-			processes = processes.append(new Process(ImmutableList.of(ifStmt), sensitivityList));
+			processes = processes.append(new Process(PersistentVector.of(ifStmt), sensitivityList));
 		} else {
 			// loop over each statement in the ifBody
 			for (AssignmentStatement ifBodyStatement : ifStmt.ifBody) {
@@ -136,13 +135,13 @@ public final class Splitter extends PostOrderExprVisitor {
 						this.traverseExpr(elseBodyStatement.expr);
 						this.traverseExpr(ifStmt.condition);
 						// build sensitivity list from this.usedVarsInExpr
-						ImmutableList<String> sensitivityList = ImmutableList.of();
+						PersistentVector<String> sensitivityList = PersistentVector.of();
 						for (String usedVar : this.usedVarsInExpr) {
 							sensitivityList = sensitivityList.append(usedVar);
 						}
 						// build the resulting list of split statements
-						IfElseStatement ifElseStatement = new IfElseStatement(ImmutableList.of(elseBodyStatement), ImmutableList.of(ifBodyStatement), ifStmt.condition);
-						processes = processes.append(new Process(ImmutableList.of(ifElseStatement), sensitivityList));
+						IfElseStatement ifElseStatement = new IfElseStatement(PersistentVector.of(elseBodyStatement), PersistentVector.of(ifBodyStatement), ifStmt.condition);
+						processes = processes.append(new Process(PersistentVector.of(ifElseStatement), sensitivityList));
 					}
 				}
 			}
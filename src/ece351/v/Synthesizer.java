@@ -31,6 +31,7 @@ import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.ConstantExpr;
 import ece351.common.ast.EqualExpr;
 import ece351.common.ast.Expr;
+import ece351.common.ast.ExprFactory;
 import ece351.common.ast.NAndExpr;
 import ece351.common.ast.NOrExpr;
 import ece351.common.ast.NaryAndExpr;
@@ -130,16 +131,16 @@ public final class Synthesizer extends PostOrderExprVisitor {
 		// build result
 		FProgram result = new FProgram();
 		condCount++;
-		VarExpr conditionExpr = new VarExpr(conditionPrefix + condCount);
+		VarExpr conditionExpr = ExprFactory.var(conditionPrefix + condCount);
 		result = result.append(new AssignmentStatement(conditionExpr, this.traverseExpr(statement.condition)));
-		result = result.append(new AssignmentStatement(varPrefix + ifb.outputVar, new OrExpr(new AndExpr(conditionExpr, this.traverseExpr(ifb.expr)), new AndExpr(new NotExpr(conditionExpr), this.traverseExpr(elb.expr)))));
+		result = result.append(new AssignmentStatement(varPrefix + ifb.outputVar, ExprFactory.or(ExprFactory.and(conditionExpr, this.traverseExpr(ifb.expr)), ExprFactory.and(ExprFactory.not(conditionExpr), this.traverseExpr(elb.expr)))));
 		return result;
 	}
 
 	/** Rewrite var names with prefix to mitigate name collision. */
 	@Override
 	public Expr visitVar(final VarExpr e) {
-		return new VarExpr(varPrefix + e.identifier);
+		return ExprFactory.var(varPrefix + e.identifier);
 	}
 	
 	@Override public Expr visitConstant(ConstantExpr e) { return e; }
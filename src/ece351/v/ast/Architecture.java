@@ -32,40 +32,39 @@ import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.Statement;
 import ece351.f.ast.FProgram;
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 import ece351.util.Tuple;
 import ece351.util.Utils351;
 
 public final class Architecture implements Examinable {
 	public final String architectureName;
 	public final String entityName;
-	public final ImmutableList<String> signals;
-	public final ImmutableList<Component> components;
-	public final ImmutableList<Statement> statements;
+	public final PersistentVector<String> signals;
+	public final PersistentVector<Component> components;
+	public final PersistentVector<Statement> statements;
 
 	public Architecture(final String ent, final String arch) {
 		this.architectureName = arch;
 		this.entityName = ent;
-		this.statements = ImmutableList.of();
-		this.signals = ImmutableList.of();
-		this.components = ImmutableList.of();
+		this.statements = PersistentVector.of();
+		this.signals = PersistentVector.of();
+		this.components = PersistentVector.of();
 	}
 
-	public Architecture(final ImmutableList<Statement> statementList,
-			final ImmutableList<Component> components,
-			final ImmutableList<String> signalList, final String ent,
+	public Architecture(final List<Statement> statementList,
+			final List<Component> components,
+			final List<String> signalList, final String ent,
 			final String arch) {
 		this.architectureName = arch;
 		this.entityName = ent;
-		this.statements = statementList;
-		this.signals = signalList;
-		this.components = components;
+		this.statements = PersistentVector.copyOf(statementList);
+		this.signals = PersistentVector.copyOf(signalList);
+		this.components = PersistentVector.copyOf(components);
 	}
 
 	public Architecture appendComponent(final Component c) {
@@ -93,17 +92,17 @@ public final class Architecture implements Examinable {
 				name, architectureName);
 	}
 		
-	public Architecture varySignals(final ImmutableList<String> list) {
+	public Architecture varySignals(final List<String> list) {
 		return new Architecture(statements, components, list,
 				entityName, architectureName);
 	}
 	
-	public Architecture varyComponents(final ImmutableList<Component> list) {
+	public Architecture varyComponents(final List<Component> list) {
 		return new Architecture(statements, list, signals,
 				entityName, architectureName);
 	}
 	
-	public Architecture varyStatements(final ImmutableList<Statement> list) {
+	public Architecture varyStatements(final List<Statement> list) {
 		return new Architecture(list, components, signals,
 				entityName, architectureName);
 	}
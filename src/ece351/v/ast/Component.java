@@ -26,32 +26,32 @@
 
 package ece351.v.ast;
 
+import java.util.List;
 import java.util.TreeSet;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 import ece351.util.Utils351;
 
 public final class Component implements Examinable {
 	public final String entityName;
 	public final String instanceName;
-	public final ImmutableList<String> signalList;
+	public final PersistentVector<String> signalList;
 	public Component(
 			final String entityName , 
 			final String instanceName) {
 		this.entityName = entityName;
 		this.instanceName = instanceName;
-		this.signalList = ImmutableList.of();
+		this.signalList = PersistentVector.of();
 	}
 	public Component(
-			final ImmutableList<String> signals,
+			final List<String> signals,
 			final String entityName , 
 			final String instanceName) {
 		this.entityName = entityName;
 		this.instanceName = instanceName;
-		this.signalList = signals;
+		this.signalList = PersistentVector.copyOf(signals);
 	}
 	
 	public Component appendSignal(final String signal) {
@@ -66,7 +66,7 @@ public final class Component implements Examinable {
 		return new Component(signalList, entityName, name);
 	}
 	
-	public Component varySignals(final ImmutableList<String> list) {
+	public Component varySignals(final List<String> list) {
 		return new Component(list, entityName, instanceName);
 	}
 	
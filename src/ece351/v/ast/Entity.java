@@ -26,28 +26,29 @@
 
 package ece351.v.ast;
 
-import org.parboiled.common.ImmutableList;
+import java.util.List;
 
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 import ece351.util.Utils351;
 
 public final class Entity implements Examinable {
 	public final String identifier;
-	public final ImmutableList<String> input;
-	public final ImmutableList<String> output;
+	public final PersistentVector<String> input;
+	public final PersistentVector<String> output;
 	
 	public Entity(final String id) {
 		this.identifier = id;
-		this.input = ImmutableList.of();
-		this.output = ImmutableList.of();
+		this.input = PersistentVector.of();
+		this.output = PersistentVector.of();
 	}
 	
-	public Entity(final ImmutableList<String> out,
-			final ImmutableList<String> in, final String id) {
+	public Entity(final List<String> out,
+			final List<String> in, final String id) {
 		this.identifier = id;
-		this.input = in;
-		this.output = out;
+		this.input = PersistentVector.copyOf(in);
+		this.output = PersistentVector.copyOf(out);
 	}
 	
 	public boolean repOk() {
@@ -65,11 +66,11 @@ public final class Entity implements Examinable {
 		return new Entity(output.append(o), input, identifier);
 	}
 	
-	public Entity setInput(final ImmutableList<String> list) {
+	public Entity setInput(final List<String> list) {
 		return new Entity(output, list, identifier);
 	}
 	
-	public Entity setOutput(final ImmutableList<String> list) {
+	public Entity setOutput(final List<String> list) {
 		return new Entity(list, input, identifier);
 	}
 	
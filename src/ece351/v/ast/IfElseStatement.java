@@ -26,7 +26,7 @@
 
 package ece351.v.ast;
 
-import org.parboiled.common.ImmutableList;
+import java.util.List;
 
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.Expr;
@@ -34,23 +34,24 @@ import ece351.common.ast.Statement;
 import ece351.f.ast.FProgram;
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 
 public final class IfElseStatement extends Statement implements Examinable {
 	public final Expr condition;
-	public final ImmutableList<AssignmentStatement> ifBody;
-	public final ImmutableList<AssignmentStatement> elseBody;
+	public final PersistentVector<AssignmentStatement> ifBody;
+	public final PersistentVector<AssignmentStatement> elseBody;
 
 	public IfElseStatement(final Expr cond) {
 		this.condition = cond;
-		this.elseBody = ImmutableList.of();
-		this.ifBody = ImmutableList.of();
+		this.elseBody = PersistentVector.of();
+		this.ifBody = PersistentVector.of();
 	}
 
-	public IfElseStatement(final ImmutableList<AssignmentStatement> elseBody,
-			final ImmutableList<AssignmentStatement> ifBody, final Expr cond) {
+	public IfElseStatement(final List<AssignmentStatement> elseBody,
+			final List<AssignmentStatement> ifBody, final Expr cond) {
 		this.condition = cond;
-		this.elseBody = elseBody;
-		this.ifBody = ifBody;
+		this.elseBody = PersistentVector.copyOf(elseBody);
+		this.ifBody = PersistentVector.copyOf(ifBody);
 	}
 
 	public boolean repOk() {
@@ -75,11 +76,11 @@ public final class IfElseStatement extends Statement implements Examinable {
 		return new IfElseStatement(elseBody.append(s), ifBody, condition);
 	}
 
-	public IfElseStatement setTrueBlock(final ImmutableList<AssignmentStatement> list) {
+	public IfElseStatement setTrueBlock(final List<AssignmentStatement> list) {
 		return new IfElseStatement(elseBody, list, condition);
 	}
 	
-	public IfElseStatement setElseBlock(final ImmutableList<AssignmentStatement> list) {
+	public IfElseStatement setElseBlock(final List<AssignmentStatement> list) {
 		return new IfElseStatement(list, ifBody, condition);
 	}
 	
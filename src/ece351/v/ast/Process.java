@@ -26,28 +26,29 @@
 
 package ece351.v.ast;
 
-import org.parboiled.common.ImmutableList;
+import java.util.List;
 
 import ece351.common.ast.AssignmentStatement;
 import ece351.common.ast.Statement;
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 import ece351.util.Utils351;
 
 public final class Process extends Statement implements Examinable {
-	public final ImmutableList<String> sensitivityList;
-	public final ImmutableList<Statement> sequentialStatements;
+	public final PersistentVector<String> sensitivityList;
+	public final PersistentVector<Statement> sequentialStatements;
 
 	public Process() {
-		this.sensitivityList = ImmutableList.of();
-		this.sequentialStatements = ImmutableList.of();
+		this.sensitivityList = PersistentVector.of();
+		this.sequentialStatements = PersistentVector.of();
 	}
 	
 	public Process(
-			final ImmutableList<Statement> statements,
-			final ImmutableList<String> sensitivityList) {
-		this.sensitivityList = sensitivityList;
-		this.sequentialStatements = statements;
+			final List<Statement> statements,
+			final List<String> sensitivityList) {
+		this.sensitivityList = PersistentVector.copyOf(sensitivityList);
+		this.sequentialStatements = PersistentVector.copyOf(statements);
 	}
 	
 	public boolean repOk() {
@@ -67,11 +68,11 @@ public final class Process extends Statement implements Examinable {
 		return new Process(sequentialStatements.append(s), sensitivityList);
 	}
 
-	public Process setSensitivityList(final ImmutableList<String> list) {
+	public Process setSensitivityList(final List<String> list) {
 		return new Process(sequentialStatements, list);
 	}
 	
-	public Process setStatements(final ImmutableList<Statement> list) {
+	public Process setStatements(final List<Statement> list) {
 		return new Process(list, sensitivityList);
 	}
 	
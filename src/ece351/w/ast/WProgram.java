@@ -26,15 +26,16 @@
 
 package ece351.w.ast;
 
-import org.parboiled.common.ImmutableList;
+import java.util.List;
 
 import ece351.util.Debug;
 import ece351.util.Examinable;
 import ece351.util.Examiner;
+import ece351.util.PersistentVector;
 
 
 public final class WProgram implements Examinable {
-	public final ImmutableList<Waveform> waveforms;
+	public final PersistentVector<Waveform> waveforms;
 
 	/**
 	 * Constructs a WProgram with a list of waveforms given by parameter
@@ -42,15 +43,15 @@ public final class WProgram implements Examinable {
 	 * 
 	 * @param waveforms
 	 */
-	public WProgram(final ImmutableList<Waveform> waveforms) {
-		this.waveforms = waveforms;
+	public WProgram(final List<Waveform> waveforms) {
+		this.waveforms = PersistentVector.copyOf(waveforms);
 	}
 	
 	/**
 	 * Constructs a WProgram with a empty list of waveforms
 	 */
 	public WProgram() {
-		this.waveforms = ImmutableList.of();
+		this.waveforms = PersistentVector.of();
 	}
 
 	public boolean repOk() {
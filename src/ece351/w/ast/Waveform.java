@@ -27,16 +27,16 @@
 package ece351.w.ast;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.util.Examinable;
+import ece351.util.PersistentVector;
 
 public final class Waveform implements Examinable {
 	public final String name;
-	public final ImmutableList<String> bits;
+	public final PersistentVector<String> bits;
 	
 	/**
 	 * Constructs a Waveform object with a name give by parameter name and a
@@ -45,9 +45,9 @@ public final class Waveform implements Examinable {
 	 * @param bits
 	 * @param name
 	 */
-	public Waveform(final ImmutableList<String> bits, final String name) {
+	public Waveform(final List<String> bits, final String name) {
 		this.name = name;
-		this.bits = bits;
+		this.bits = PersistentVector.copyOf(bits);
 	}
 
 	/**
@@ -56,7 +56,7 @@ public final class Waveform implements Examinable {
 	 * */
 	public Waveform() {
 		this.name = "<anon>";
-		this.bits = ImmutableList.of();
+		this.bits = PersistentVector.of();
 	}
 
 	/**
@@ -67,7 +67,7 @@ public final class Waveform implements Examinable {
 	 */
 	public Waveform(final String name) {
 		this.name = name;
-		this.bits = ImmutableList.of();
+		this.bits = PersistentVector.of();
 	}
 
 	public boolean repOk() {
@@ -30,9 +30,9 @@ import java.io.File;
 import org.parboiled.Rule;
 import org.parboiled.annotations.BuildParseTree;
 import org.parboiled.common.FileUtils;
-import org.parboiled.common.ImmutableList;
 
 import ece351.util.BaseParser351;
+import ece351.util.PersistentVector;
 import ece351.w.ast.WProgram;
 import ece351.w.ast.Waveform;
 import java.lang.invoke.MethodHandles;
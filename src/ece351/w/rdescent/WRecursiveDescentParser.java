@@ -26,9 +26,8 @@
 
 package ece351.w.rdescent;
 
-import org.parboiled.common.ImmutableList;
-
 import ece351.util.Lexer;
+import ece351.util.PersistentVector;
 import ece351.w.ast.WProgram;
 import ece351.w.ast.Waveform;
 
@@ -35,10 +35,11 @@ import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
 import org.apache.batik.util.XMLResourceDescriptor;
-import org.parboiled.common.ImmutableList;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
+import ece351.util.PersistentVector;
+
 /**
  * A simple immutable data structure that just holds a list of pins and a list of lines.
  * To be constructed from SVG.
@@ -50,10 +51,10 @@ import org.w3c.dom.Node;
  */
 public final class PinsLines {
 
-	final ImmutableList<Pin> pins;
-	final ImmutableList<Line> segments;
+	final PersistentVector<Pin> pins;
+	final PersistentVector<Line> segments;
 
-	PinsLines(final ImmutableList<Pin> pins, final ImmutableList<Line> segments) {
+	PinsLines(final PersistentVector<Pin> pins, final PersistentVector<Line> segments) {
 		this.pins = pins;
 		this.segments = segments;
 	}
@@ -98,7 +99,7 @@ public final class PinsLines {
 		} catch (Exception e) {
 			throw e;
 		}
-		return new PinsLines(ImmutableList.copyOf(pins), ImmutableList.copyOf(segments));
+		return new PinsLines(PersistentVector.copyOf(pins), PersistentVector.copyOf(segments));
 	}
 	
 	/**
@@ -31,8 +31,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import org.parboiled.common.ImmutableList;
-
+import ece351.util.PersistentVector;
 import ece351.w.ast.WProgram;
 import ece351.w.ast.Waveform;
 
@@ -43,7 +42,7 @@ public final class TransformSVG2W {
 	 * Write this algorithm in whatever way you wish.
 	 * Remember that the AST is immutable.
 	 * You might want to build up some mutable temporary structures.
-	 * ImmutableList can be used as a "mutable" temporary structure if the 
+	 * PersistentVector can be used as a "mutable" temporary structure if the 
 	 * local variable is not final: just re-assign the local variable to the new list.
 	 * 
 	 * We used to give more detailed comments on the staff algorithm,
@@ -69,7 +68,7 @@ public final class TransformSVG2W {
 			}
 		});
 		
-		ImmutableList<Waveform> wProgramWaveforms = ImmutableList.of();
+		PersistentVector<Waveform> wProgramWaveforms = PersistentVector.of();
 		
 		int linesIndex = 0;
 		final int y_off = 50;
@@ -90,7 +89,7 @@ public final class TransformSVG2W {
 	 * Transform a list of Line to an instance of Waveform.
 	 * The concept of a y-midpoint might be useful: 1 is a line above; 0 is a line below.
 	 * What to do about "dots"?
-	 * ImmutableList can be used as a "mutable" temporary structure if the 
+	 * PersistentVector can be used as a "mutable" temporary structure if the 
 	 * local variable is not final: just re-assign the local variable to the new list.
 	 * 
 	 * We used to give more detailed comments on the staff algorithm,